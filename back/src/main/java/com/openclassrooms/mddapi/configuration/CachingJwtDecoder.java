@@ -0,0 +1,80 @@
+package com.openclassrooms.mddapi.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Predicate;
+
+/**
+ * JWT decoder caching verified tokens in front of another decoder.
+ * Clients send the same token on every request: once its signature and claims are verified,
+ * the decoded {@link Jwt} is kept, keyed by a SHA-256 digest of the token, until the token expires.
+ * Tokens that fail verification are never cached, and a cached token past its expiry is never served.
+ * Tokens of revoked sessions are rejected, cached or not.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verifiedTokens;
+    private final Predicate<Jwt> isRevoked;
+
+    public CachingJwtDecoder(JwtDecoder delegate, Predicate<Jwt> isRevoked, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.isRevoked = isRevoked;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String digest, Jwt jwt) -> timeToLive(jwt)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.decoder");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String digest = digest(token);
+        Jwt jwt = verifiedTokens.get(digest, key -> delegate.decode(token));
+
+        // Entries expire with the token, but eviction is not exact to the instant
+        if (jwt.getExpiresAt() != null && !jwt.getExpiresAt().isAfter(Instant.now())) {
+            verifiedTokens.invalidate(digest);
+            throw new BadJwtException("Jwt expired at " + jwt.getExpiresAt());
+        }
+        if (isRevoked.test(jwt)) {
+            verifiedTokens.invalidate(digest);
+            throw new BadJwtException("Jwt revoked");
+        }
+        return jwt;
+    }
+
+    private Duration timeToLive(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            // Token without expiry: never keep it, let the delegate verify it each time
+            return Duration.ZERO;
+        }
+        Duration ttl = Duration.between(Instant.now(), expiresAt);
+        return ttl.isNegative() ? Duration.ZERO : ttl;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.openclassrooms.mddapi.configuration;
+
+import com.openclassrooms.mddapi.entity.IdGenerators;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves every ID sequence past the highest ID of its table before any request is served.
+ * Databases created before the sequences held rows with auto-incremented IDs: the sequences
+ * must start after them, and never go back.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdGeneratorInitializer implements SmartInitializingSingleton {
+
+    private static final List<String> SEQUENCES = List.of(IdGenerators.POSTS, IdGenerators.COMMENTS);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String sequence : SEQUENCES) {
+            // Sequences are named after their table: the names are constants, not input
+            String firstFreeId = "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + sequence + ")";
+            int updated = jdbcTemplate.update("UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN
+                    + " = GREATEST(" + IdGenerators.VALUE_COLUMN + ", " + firstFreeId + ") WHERE "
+                    + IdGenerators.NAME_COLUMN + " = ?", sequence);
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", "
+                        + IdGenerators.VALUE_COLUMN + ") SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + sequence, sequence);
+            }
+        }
+        log.info("ID sequences ready: {}", SEQUENCES);
+    }
+}
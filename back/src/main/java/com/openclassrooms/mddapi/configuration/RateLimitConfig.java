@@ -0,0 +1,38 @@
+package com.openclassrooms.mddapi.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+/**
+ * Configuration registering the rate limiter in front of the security chain.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    /**
+     * Registers the {@link RateLimitFilter} just before the Spring Security filter chain.
+     *
+     * @param properties the configured routes and limits
+     * @param jwtDecoder the decoder identifying the account of authenticated requests
+     * @param objectMapper the mapper writing the 429 responses
+     * @param meterRegistry the registry of the rejection counters
+     * @return the filter registration
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "mdd.rate-limit", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitProperties properties, JwtDecoder jwtDecoder,
+                                                                   ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(properties, jwtDecoder, objectMapper, meterRegistry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
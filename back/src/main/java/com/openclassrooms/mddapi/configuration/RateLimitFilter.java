@@ -0,0 +1,282 @@
+package com.openclassrooms.mddapi.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.mddapi.dto.ErrorResponse;
+import com.openclassrooms.mddapi.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servlet filter applying per-IP and per-account token buckets to the configured routes,
+ * ahead of the security chain so that a flood is turned away before any password is hashed.
+ * Buckets live in a bounded map evicted once idle long enough to be full again; each bucket
+ * is locked on its own, so concurrent requests only contend on the same key.
+ * Requests whose method has no configured route pass after a single map lookup.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Login and registration bodies are read whole to find their email: larger ones are refused
+    private static final int MAX_ACCOUNT_BODY_SIZE = 4096;
+
+    private final Map<String, List<CompiledRoute>> routesByMethod = new HashMap<>();
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final JwtDecoder jwtDecoder;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(RateLimitProperties properties, JwtDecoder jwtDecoder, ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.jwtDecoder = jwtDecoder;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        Duration longestPeriod = Duration.ofMinutes(1);
+        for (Map.Entry<String, RateLimitProperties.Route> entry : properties.getRoutes().entrySet()) {
+            RateLimitProperties.Route route = entry.getValue();
+            routesByMethod.computeIfAbsent(route.getMethod().name(), method -> new ArrayList<>())
+                    .add(new CompiledRoute(entry.getKey(), PathPatternParser.defaultInstance.parse(route.getPath()), route));
+            for (RateLimitProperties.Limit limit : Arrays.asList(route.getPerIp(), route.getPerAccount())) {
+                if (limit != null && limit.getPeriod().compareTo(longestPeriod) > 0) {
+                    longestPeriod = limit.getPeriod();
+                }
+            }
+        }
+
+        // An idle bucket is full again after one period: forgetting it changes nothing
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(longestPeriod)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !routesByMethod.containsKey(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompiledRoute route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitProperties.Limit perIp = route.config().getPerIp();
+        if (perIp != null && rejected(route, "ip", request.getRemoteAddr(), perIp, response)) {
+            return;
+        }
+
+        RateLimitProperties.Limit perAccount = route.config().getPerAccount();
+        if (perAccount != null) {
+            String account = null;
+            switch (route.config().getAccount()) {
+                case EMAIL -> {
+                    // Never skip the account bucket: a body too large to be read whole is refused instead
+                    byte[] body = request.getContentLengthLong() > MAX_ACCOUNT_BODY_SIZE
+                            ? null : request.getInputStream().readNBytes(MAX_ACCOUNT_BODY_SIZE + 1);
+                    if (body == null || body.length > MAX_ACCOUNT_BODY_SIZE) {
+                        writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "PAYLOAD_TOO_LARGE",
+                                "Request body must not exceed " + MAX_ACCOUNT_BODY_SIZE + " bytes");
+                        return;
+                    }
+                    account = readEmail(body);
+                    request = new ReplayingRequest(request, body);
+                }
+                case USER -> account = readUserId(request);
+                case NONE -> {
+                }
+            }
+            if (account != null && rejected(route, "account", account, perAccount, response)) {
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private CompiledRoute match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (CompiledRoute route : routesByMethod.get(request.getMethod())) {
+            if (route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes a token from the bucket of the key and writes a 429 response if it is empty.
+     *
+     * @return true if the request was rejected
+     */
+    private boolean rejected(CompiledRoute route, String scope, String value, RateLimitProperties.Limit limit,
+                             HttpServletResponse response) throws IOException {
+        TokenBucket bucket = buckets.get(new BucketKey(route.name(), scope, value), key -> new TokenBucket(limit));
+        long waitNanos = bucket.tryConsume(System.nanoTime());
+        if (waitNanos == 0) {
+            return false;
+        }
+
+        log.warn("Rate limit of {} exceeded per {}", route.name(), scope);
+        meterRegistry.counter("mdd.rate-limit.rejected", "route", route.name(), "scope", scope).increment();
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        writeError(response, HttpStatus.TOO_MANY_REQUESTS, "TOO_MANY_REQUESTS", "Too many requests, retry later");
+        return true;
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(error, message, status.value()));
+    }
+
+    // The body is complete: a missing or unreadable email is rejected by validation, before any password check
+    private String readEmail(byte[] body) {
+        try {
+            String email = objectMapper.readTree(body).path("email").asText(null);
+            return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String readUserId(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            // Verified tokens are cached, so the security chain decodes this one for free
+            Object userId = jwtDecoder.decode(authorization.substring(7)).getClaim(JwtService.CLAIM_USER_ID);
+            return userId == null ? null : userId.toString();
+        } catch (JwtException e) {
+            // Rejected by the security chain right after
+            return null;
+        }
+    }
+
+    private record CompiledRoute(String name, PathPattern pattern, RateLimitProperties.Route config) {
+    }
+
+    private record BucketKey(String route, String scope, String value) {
+    }
+
+    /**
+     * Token bucket refilled continuously; a request takes one token.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(RateLimitProperties.Limit limit) {
+            this.capacity = limit.getCapacity();
+            this.tokensPerNano = capacity / limit.getPeriod().toNanos();
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+         */
+        synchronized long tryConsume(long nowNanos) {
+            tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = nowNanos;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+    }
+
+    /**
+     * Request whose body is replayed from the bytes already read by the filter.
+     */
+    private static final class ReplayingRequest extends HttpServletRequestWrapper {
+        private final ServletInputStream inputStream;
+
+        ReplayingRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+            this.inputStream = new ServletInputStream() {
+                @Override
+                public int read() {
+                    return bytes.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return bytes.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return bytes.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is in memory: it is available at once, then complete
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(inputStream, charset));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.openclassrooms.mddapi.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate limits of the expensive or write endpoints, configured per route under {@code mdd.rate-limit}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mdd.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on the number of buckets kept in memory
+    private long maxBuckets = 100_000;
+
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    /**
+     * How the account of a request is identified for its per-account limit.
+     */
+    public enum AccountKey {
+        // No per-account limit
+        NONE,
+        // The email field of the JSON body, for the unauthenticated endpoints
+        EMAIL,
+        // The user ID of the bearer token
+        USER
+    }
+
+    @Getter
+    @Setter
+    public static class Route {
+        private HttpMethod method = HttpMethod.POST;
+        private String path;
+        private Limit perIp;
+        private Limit perAccount;
+        private AccountKey account = AccountKey.NONE;
+    }
+
+    /**
+     * Token bucket: up to {@code capacity} requests at once, refilled at {@code capacity} per {@code period}.
+     */
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
@@ -1,17 +1,21 @@
 package com.openclassrooms.mddapi.configuration;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import com.openclassrooms.mddapi.service.JwtService;
+import com.openclassrooms.mddapi.service.TokenRevocationService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
@@ -19,9 +23,14 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -37,6 +46,13 @@ public class SpringSecurityConfig {
     @Value("${jwt.secret}")
     private String jwtKey;
 
+    @Value("${mdd.jwt-cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
+    // Administrators are identified by user ID: emails can be registered or changed by anyone
+    @Value("${mdd.admin.user-ids:}")
+    private Set<Long> adminUserIds;
+
     private final UserDetailsService customUserDetailsService;
 
     /**
@@ -52,20 +68,43 @@ public class SpringSecurityConfig {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())))
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(
                                 "/api/auth/login",
                                 "/api/auth/register",
+                                "/api/auth/refresh",
                                 "/swagger-ui/**",
                                 "/v3/api-docs",
                                 "/v3/api-docs/**",
                                 "/swagger-ui.html"
                         ).permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .build();
     }
 
+    /**
+     * Converts a verified token into an authentication, granted ROLE_ADMIN when its user ID
+     * is one of the configured administrators. The user ID claim is set by the server when
+     * the token is issued and never changes for an account.
+     *
+     * @return the JWT authentication converter
+     */
+    private JwtAuthenticationConverter jwtAuthenticationConverter() {
+        JwtGrantedAuthoritiesConverter scopes = new JwtGrantedAuthoritiesConverter();
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
+            Collection<GrantedAuthority> authorities = new ArrayList<>(scopes.convert(jwt));
+            Object userId = jwt.getClaim(JwtService.CLAIM_USER_ID);
+            if (userId instanceof Number id && adminUserIds.contains(id.longValue())) {
+                authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+            }
+            return authorities;
+        });
+        return converter;
+    }
+
     /**
      * Creates a JWT encoder for generating JWT tokens.
      *
@@ -79,16 +118,21 @@ public class SpringSecurityConfig {
 
     /**
      * Creates a JWT decoder for validating JWT tokens.
+     * Verified tokens are cached until they expire, so a token is only verified once.
+     * Tokens of revoked sessions are rejected.
      *
+     * @param meterRegistry the registry of the cache metrics
+     * @param tokenRevocationService the in-memory set of revoked sessions
      * @return configured JwtDecoder
      */
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry, TokenRevocationService tokenRevocationService) {
         byte[] keyBytes = Base64.getDecoder().decode(this.jwtKey);
         SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "HmacSHA256");
-        return NimbusJwtDecoder.withSecretKey(secretKey)
+        NimbusJwtDecoder nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKey)
                 .macAlgorithm(MacAlgorithm.HS256)
                 .build();
+        return new CachingJwtDecoder(nimbusJwtDecoder, tokenRevocationService::isRevoked, jwtCacheMaxSize, meterRegistry);
     }
 
     /**
@@ -0,0 +1,55 @@
+package com.openclassrooms.mddapi.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Widens the {@code updated_at} columns to microseconds before any request is served.
+ * ETags are derived from them: with whole seconds, two updates in the same second gave the same ETag
+ * and a client could keep a stale representation. Databases created before held such columns.
+ * MySQL only: the columns created by Hibernate already hold microseconds.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UpdatedAtPrecisionInitializer implements SmartInitializingSingleton {
+
+    // Tables whose updated_at versions a cached representation
+    private static final List<String> TABLES = List.of("users", "subjects", "posts", "comments");
+
+    private static final String FIND_COARSE_COLUMNS = "SELECT TABLE_NAME, DATA_TYPE, IS_NULLABLE, COLUMN_DEFAULT, EXTRA " +
+            "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND COLUMN_NAME = 'updated_at' " +
+            "AND TABLE_NAME IN ('" + String.join("', '", TABLES) + "') AND DATETIME_PRECISION < 6";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equals(database)) {
+            // Column definitions read from the MySQL information schema
+            return;
+        }
+        List<Map<String, Object>> columns = jdbcTemplate.queryForList(FIND_COARSE_COLUMNS);
+        for (Map<String, Object> column : columns) {
+            String table = column.get("TABLE_NAME").toString();
+            // Same definition with fractional seconds: the table names are constants, not input
+            String definition = column.get("DATA_TYPE") + "(6)"
+                    + ("NO".equals(column.get("IS_NULLABLE")) ? " NOT NULL" : " NULL")
+                    + (String.valueOf(column.get("COLUMN_DEFAULT")).toUpperCase().startsWith("CURRENT_TIMESTAMP")
+                    ? " DEFAULT CURRENT_TIMESTAMP(6)" : "")
+                    + (String.valueOf(column.get("EXTRA")).toUpperCase().contains("ON UPDATE")
+                    ? " ON UPDATE CURRENT_TIMESTAMP(6)" : "");
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY COLUMN updated_at " + definition);
+            log.info("Widened {}.updated_at to {}", table, definition);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.mddapi.controller;
+
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
+import com.openclassrooms.mddapi.dto.user.UserImportRequestDto;
+import com.openclassrooms.mddapi.dto.user.UserImportResponseDto;
+import com.openclassrooms.mddapi.service.AuthService;
+import com.openclassrooms.mddapi.service.UserImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "Endpoints reserved to administrators")
+public class AdminController {
+
+    private final UserImportService userImportService;
+    private final AuthService authService;
+
+    @PostMapping("/users/import")
+    @Operation(
+            summary = "Import users in bulk",
+            description = "Create up to 1000 user accounts at once. Entries whose email or username is already " +
+                    "taken are skipped and reported. Reserved to the administrators whose user IDs are listed in mdd.admin.user-ids.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Users imported",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UserImportResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data or validation errors",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Authentication required - missing or invalid JWT token",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "The authenticated user is not an administrator",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A user was registered with the same email or username during the import",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Password hashing pool saturated, retry after the Retry-After delay",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<UserImportResponseDto> importUsers(
+            @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
+            @Parameter(
+                    description = "Users to create, with the same fields as a registration",
+                    required = true
+            )
+            @Valid @RequestBody @NotNull(message = "Import request cannot be null") UserImportRequestDto userImportRequestDto
+    ) {
+        AuthenticatedUser admin = authService.getPrincipal(jwtAuthenticationToken);
+
+        log.info("User import of {} entries requested by: {}", userImportRequestDto.getUsers().size(), admin.email());
+
+        UserImportResponseDto response = userImportService.importUsers(admin, userImportRequestDto.getUsers());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+}
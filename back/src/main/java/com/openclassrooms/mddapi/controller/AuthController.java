@@ -2,6 +2,7 @@ package com.openclassrooms.mddapi.controller;
 
 import com.openclassrooms.mddapi.dto.auth.AuthResponseDto;
 import com.openclassrooms.mddapi.dto.auth.LoginRequestDto;
+import com.openclassrooms.mddapi.dto.auth.RefreshRequestDto;
 import com.openclassrooms.mddapi.dto.auth.RegisterRequestDto;
 import com.openclassrooms.mddapi.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,12 +11,14 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 
 @Slf4j
@@ -31,7 +34,7 @@ public class AuthController {
     @Operation(
             summary = "Register a new user account",
             description = "Create a new user account with email, username, and password. " +
-                    "Returns a JWT token for immediate authentication.",
+                    "Returns a short-lived JWT token for immediate authentication and a refresh token to renew it.",
             security = {}
     )
     @ApiResponses(value = {
@@ -57,6 +60,11 @@ public class AuthController {
                     responseCode = "500",
                     description = "Internal server error during registration",
                     content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Too many concurrent password checks, retry after the Retry-After delay",
+                    content = @Content
             )
     })
     public ResponseEntity<AuthResponseDto> registerUser(
@@ -68,19 +76,20 @@ public class AuthController {
     ) {
         log.info("Registration attempt for email: {}", registerRequestDto.getEmail());
 
-        String token = authService.registerUser(registerRequestDto);
+        AuthResponseDto authResponseDto = authService.registerUser(registerRequestDto);
 
         log.info("User registered successfully with email: {}", registerRequestDto.getEmail());
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(new AuthResponseDto(token));
+                .body(authResponseDto);
     }
 
     @PostMapping("/login")
     @Operation(
             summary = "Authenticate user login",
             description = "Authenticate a user with email and password to obtain a JWT token. " +
-                    "The token can be used for accessing protected endpoints.",
+                    "The token can be used for accessing protected endpoints until it expires, " +
+                    "then renewed with the refresh token.",
             security = {}
     )
     @ApiResponses(value = {
@@ -106,6 +115,11 @@ public class AuthController {
                     responseCode = "500",
                     description = "Internal server error during authentication",
                     content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Too many concurrent password checks, retry after the Retry-After delay",
+                    content = @Content
             )
     })
     public ResponseEntity<AuthResponseDto> loginUser(
@@ -117,10 +131,80 @@ public class AuthController {
     ) {
         log.info("Login attempt for email: {}", loginRequestDto.getEmail());
 
-        String token = authService.loginUser(loginRequestDto);
+        AuthResponseDto authResponseDto = authService.loginUser(loginRequestDto);
 
         log.info("User logged in successfully with email: {}", loginRequestDto.getEmail());
 
-        return ResponseEntity.ok(new AuthResponseDto(token));
+        return ResponseEntity.ok(authResponseDto);
+    }
+
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Renew the access token",
+            description = "Exchange a refresh token for a new JWT token and the next refresh token. " +
+                    "Each refresh token can be used once; using it again revokes the whole session.",
+            security = {}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "New JWT token and refresh token returned",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data or validation errors",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Refresh token unknown, expired, revoked or already used",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error during refresh",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<AuthResponseDto> refresh(
+            @Parameter(
+                    description = "Refresh token of the session",
+                    required = true
+            )
+            @Valid @RequestBody RefreshRequestDto refreshRequestDto
+    ) {
+        return ResponseEntity.ok(authService.refresh(refreshRequestDto.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    @Operation(
+            summary = "End the current session",
+            description = "Revoke the session of the current JWT token: its refresh tokens and JWT tokens are rejected from now on.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Session revoked",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Authentication required - missing or invalid JWT token",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<Void> logout(@Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken) {
+        authService.logout(authService.getPrincipal(jwtAuthenticationToken));
+        return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
@@ -1,15 +1,15 @@
 package com.openclassrooms.mddapi.controller;
 
+import com.openclassrooms.mddapi.dto.CursorPageResponseDto;
+import com.openclassrooms.mddapi.dto.comment.CommentAcceptedResponseDto;
 import com.openclassrooms.mddapi.dto.comment.CommentRequestDto;
 import com.openclassrooms.mddapi.dto.comment.CommentResponseDto;
-import com.openclassrooms.mddapi.entity.Comment;
-import com.openclassrooms.mddapi.entity.User;
-import com.openclassrooms.mddapi.mapper.CommentMapper;
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
 import com.openclassrooms.mddapi.service.AuthService;
 import com.openclassrooms.mddapi.service.CommentService;
+import com.openclassrooms.mddapi.service.CommentWriteBehindService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -17,16 +17,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @Slf4j
 @RestController
@@ -36,13 +38,14 @@ import java.util.List;
 public class CommentController {
 
     private final CommentService commentService;
+    private final CommentWriteBehindService commentWriteBehindService;
     private final AuthService authService;
-    private final CommentMapper commentMapper;
 
     @GetMapping("/post/{postId}")
     @Operation(
             summary = "Get comments for a post",
-            description = "Retrieve all comments for a specific post, ordered by creation date (newest first). " +
+            description = "Retrieve one page of the comments of a specific post, ordered by creation date (newest first). " +
+                    "Pass the returned nextCursor to fetch the following page. " +
                     "This endpoint is publicly accessible."
     )
     @ApiResponses(value = {
@@ -51,12 +54,17 @@ public class CommentController {
                     description = "Comments retrieved successfully",
                     content = @Content(
                             mediaType = "application/json",
-                            array = @ArraySchema(schema = @Schema(implementation = CommentResponseDto.class))
+                            schema = @Schema(implementation = CursorPageResponseDto.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the ETag given in If-None-Match",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "400",
-                    description = "Invalid post ID provided",
+                    description = "Invalid post ID, cursor or limit",
                     content = @Content
             ),
             @ApiResponse(
@@ -70,36 +78,64 @@ public class CommentController {
                     content = @Content
             )
     })
-    public ResponseEntity<List<CommentResponseDto>> getCommentsByPostId(
+    public ResponseEntity<CursorPageResponseDto<CommentResponseDto>> getCommentsByPostId(
             @Parameter(
                     description = "ID of the post to retrieve comments for",
                     required = true,
                     example = "1"
             )
-            @PathVariable Long postId
+            @PathVariable Long postId,
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of comments to return", example = "20")
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 100, message = "Limit must not exceed 100") int limit,
+            @Parameter(hidden = true) WebRequest webRequest
     ) {
         log.info("Retrieving comments for post with ID: {}", postId);
 
-        List<Comment> comments = commentService.getCommentsByPostId(postId);
-        List<CommentResponseDto> commentDtos = commentMapper.toCommentResponseDtoList(comments);
+        String eTag = commentService.getCommentsETag(postId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        CursorPageResponseDto<CommentResponseDto> page = commentService.getComments(postId, cursor, limit);
 
-        log.info("Successfully retrieved {} comments for post ID: {}", commentDtos.size(), postId);
+        log.info("Successfully retrieved {} comments for post ID: {}", page.getItems().size(), postId);
 
-        return ResponseEntity.ok(commentDtos);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(page);
     }
 
     @PostMapping("/post/{postId}")
     @Operation(
             summary = "Add a comment to a post",
             description = "Create a new comment for a post. Requires authentication. " +
-                    "The comment will be associated with the authenticated user as the author.",
+                    "The comment will be associated with the authenticated user as the author. " +
+                    "When the write-behind mode is enabled, the comment is accepted into a queue and written " +
+                    "within milliseconds: the response is 202 with its final ID, and the comment is lost " +
+                    "only if the server crashes before writing it.",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "201",
                     description = "Comment added successfully",
-                    content = @Content
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CommentAcceptedResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Comment accepted, to be written shortly (write-behind mode)",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CommentAcceptedResponseDto.class)
+                    )
             ),
             @ApiResponse(
                     responseCode = "400",
@@ -125,9 +161,14 @@ public class CommentController {
                     responseCode = "500",
                     description = "Internal server error while creating comment",
                     content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Comment queue full or server stopping, retry after the Retry-After delay",
+                    content = @Content
             )
     })
-    public ResponseEntity<Void> addComment(
+    public ResponseEntity<CommentAcceptedResponseDto> addComment(
             @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
             @Parameter(
                     description = "ID of the post to add the comment to",
@@ -143,11 +184,20 @@ public class CommentController {
     ) {
         log.info("Adding comment to post with ID: {} by user", postId);
 
-        User author = authService.getAuthenticatedUser(jwtAuthenticationToken);
-        commentService.addComment(postId, commentRequestDto, author);
+        AuthenticatedUser author = authService.getPrincipal(jwtAuthenticationToken);
+
+        if (commentWriteBehindService.isEnabled()) {
+            Long commentId = commentWriteBehindService.addComment(postId, commentRequestDto, author.id());
+
+            log.info("Accepted comment {} to post ID: {} by user: {}", commentId, postId, author.email());
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new CommentAcceptedResponseDto(commentId));
+        }
+
+        Long commentId = commentService.addComment(postId, commentRequestDto, author.id());
 
-        log.info("Successfully added comment to post ID: {} by user: {}", postId, author.getEmail());
+        log.info("Successfully added comment to post ID: {} by user: {}", postId, author.email());
 
-        return ResponseEntity.status(HttpStatus.CREATED).build();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new CommentAcceptedResponseDto(commentId));
     }
 }
\ No newline at end of file
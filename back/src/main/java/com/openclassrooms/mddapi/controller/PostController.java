@@ -1,13 +1,17 @@
 package com.openclassrooms.mddapi.controller;
 
+import com.openclassrooms.mddapi.dto.CursorPageResponseDto;
 import com.openclassrooms.mddapi.dto.post.PostDetailsResponseDto;
+import com.openclassrooms.mddapi.dto.post.PostExportDto;
 import com.openclassrooms.mddapi.dto.post.PostRequestDto;
 import com.openclassrooms.mddapi.dto.post.PostResponseDto;
-import com.openclassrooms.mddapi.entity.Post;
-import com.openclassrooms.mddapi.entity.User;
-import com.openclassrooms.mddapi.mapper.PostMapper;
+import com.openclassrooms.mddapi.dto.post.PostWithCommentsResponseDto;
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
 import com.openclassrooms.mddapi.service.AuthService;
+import com.openclassrooms.mddapi.service.PostExportService;
 import com.openclassrooms.mddapi.service.PostService;
+import com.openclassrooms.mddapi.service.PostStreamService;
+import com.openclassrooms.mddapi.service.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -18,14 +22,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -36,14 +48,22 @@ import java.util.List;
 @Tag(name = "Posts", description = "Endpoints for managing posts")
 public class PostController {
 
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final PostService postService;
     private final AuthService authService;
-    private final PostMapper postMapper;
+    private final PostStreamService postStreamService;
+    private final PostExportService postExportService;
+    private final TrendingService trendingService;
 
     @GetMapping("/subscribed")
     @Operation(
             summary = "Get subscribed posts",
-            description = "Retrieve posts from subjects the authenticated user is subscribed to",
+            description = "Retrieve one page of posts from subjects the authenticated user is subscribed to. " +
+                    "Posts carry an excerpt of their content; the full content is served by the post details. " +
+                    "Pass the returned nextCursor to fetch the following page. " +
+                    "With since, only posts created after that position are returned, oldest first, " +
+                    "and nextCursor is the value to poll with next.",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -52,9 +72,19 @@ public class PostController {
                     description = "Posts retrieved successfully",
                     content = @Content(
                             mediaType = "application/json",
-                            array = @ArraySchema(schema = @Schema(implementation = PostResponseDto.class))
+                            schema = @Schema(implementation = CursorPageResponseDto.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "No post was created after since",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid cursor or limit",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "401",
                     description = "Authentication required",
@@ -66,21 +96,140 @@ public class PostController {
                     content = @Content
             )
     })
-    public ResponseEntity<List<PostResponseDto>> getSubscribedPosts(
+    public ResponseEntity<CursorPageResponseDto<PostResponseDto>> getSubscribedPosts(
             @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
             @Parameter(
                     description = "Sort order for posts by creation date. 'desc' for newest first, 'asc' for oldest first",
                     example = "desc",
                     schema = @Schema(allowableValues = {"asc", "desc"})
             )
-            @RequestParam(defaultValue = "desc") String sort
+            @RequestParam(defaultValue = "desc") String sort,
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Opaque cursor of the newest post already seen, for polling new posts only")
+            @RequestParam(required = false) String since,
+            @Parameter(description = "Maximum number of posts to return", example = "20")
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 100, message = "Limit must not exceed 100") int limit
+    ) {
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+
+        if (since != null) {
+            return postService.getSubscribedPostsSince(user.id(), since, limit)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+
+        CursorPageResponseDto<PostResponseDto> page = postService.getSubscribedPosts(user.id(), sort, cursor, limit);
+
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/trending")
+    @Operation(
+            summary = "Get trending posts",
+            description = "Retrieve the posts with the most comments recently, most active first. " +
+                    "Recent activity weighs more than older activity, and activity older than the window is ignored.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Trending posts retrieved successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = PostResponseDto.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Authentication required",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<PostResponseDto>> getTrendingPosts() {
+        return ResponseEntity.ok(trendingService.getTrendingPosts());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream new subscribed posts",
+            description = "Open a Server-Sent Events stream pushing a 'post' event for every post created in a subject " +
+                    "the authenticated user is subscribed to. The event id is the post's cursor, usable as since " +
+                    "on the subscribed feed to catch up after a reconnection.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream opened",
+                    content = @Content(
+                            mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = PostResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Authentication required",
+                    content = @Content
+            )
+    })
+    public SseEmitter streamSubscribedPosts(
+            @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken
     ) {
-        User user = authService.getAuthenticatedUser(jwtAuthenticationToken);
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
 
-        List<Post> posts = postService.getSubscribedPosts(user, sort);
-        List<PostResponseDto> postDtos = postMapper.toPostResponseDtoList(posts);
+        log.info("Opening post stream for user: {}", user.email());
 
-        return ResponseEntity.ok(postDtos);
+        return postStreamService.connect(user.id(), user.sessionId());
+    }
+
+    @GetMapping(value = "/export", produces = PostController.NDJSON_VALUE)
+    @Operation(
+            summary = "Export posts with their comments",
+            description = "Stream all posts of a subject, or of every subject the authenticated user is subscribed to " +
+                    "when no subject is given, oldest first, as newline-delimited JSON: one post with its comments per line.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Export streamed",
+                    content = @Content(
+                            mediaType = PostController.NDJSON_VALUE,
+                            schema = @Schema(implementation = PostExportDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Authentication required",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Subject not found",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> exportPosts(
+            @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
+            @Parameter(description = "ID of the subject to export, or none for the user's whole feed")
+            @RequestParam(required = false) @Positive(message = "Subject ID must be positive") Long subjectId
+    ) {
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+
+        log.info("Exporting posts of {} for user: {}",
+                subjectId != null ? "subject " + subjectId : "subscribed subjects", user.email());
+
+        StreamingResponseBody body = subjectId != null
+                ? postExportService.exportSubject(subjectId)
+                : postExportService.exportFeed(user.id());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.ndjson\"")
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
     }
 
     @GetMapping("/{postId}")
@@ -97,6 +246,11 @@ public class PostController {
                             schema = @Schema(implementation = PostDetailsResponseDto.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the ETag given in If-None-Match",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Invalid post ID",
@@ -119,16 +273,92 @@ public class PostController {
                     required = true,
                     example = "1"
             )
-            @PathVariable @Positive(message = "Post ID must be positive") Long postId
+            @PathVariable @Positive(message = "Post ID must be positive") Long postId,
+            @Parameter(hidden = true) WebRequest webRequest
     ) {
         log.info("Retrieving details for post ID: {}", postId);
 
-        Post post = postService.getPostDetails(postId);
-        PostDetailsResponseDto postDetails = postMapper.toPostDetailsResponseDto(post);
+        String eTag = postService.getPostDetailsETag(postId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        PostDetailsResponseDto postDetails = postService.getPostDetails(postId);
 
         log.info("Successfully retrieved post details for ID: {}", postId);
 
-        return ResponseEntity.ok(postDetails);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(postDetails);
+    }
+
+    @GetMapping("/{postId}/with-comments")
+    @Operation(
+            summary = "Get post details with comments",
+            description = "Retrieve detailed information about a specific post and the first page of its comments, " +
+                    "newest first, in one request. Pass comments.nextCursor to the comments endpoint " +
+                    "to fetch the following pages."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Post details and comments retrieved successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PostWithCommentsResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the ETag given in If-None-Match",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid post ID or limit",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Post not found",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<PostWithCommentsResponseDto> getPostWithComments(
+            @Parameter(
+                    description = "ID of the post to retrieve",
+                    required = true,
+                    example = "1"
+            )
+            @PathVariable @Positive(message = "Post ID must be positive") Long postId,
+            @Parameter(description = "Maximum number of comments to return", example = "20")
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 100, message = "Limit must not exceed 100") int limit,
+            @Parameter(hidden = true) WebRequest webRequest
+    ) {
+        log.info("Retrieving details and comments for post ID: {}", postId);
+
+        String eTag = postService.getPostWithCommentsETag(postId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        PostWithCommentsResponseDto postWithComments = postService.getPostWithComments(postId, limit);
+
+        log.info("Successfully retrieved post details and {} comments for ID: {}",
+                postWithComments.getComments().getItems().size(), postId);
+
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(postWithComments);
     }
 
     @PostMapping
@@ -174,11 +404,11 @@ public class PostController {
     ) {
         log.info("Creating new post in subject ID: {}", postRequestDto.getSubjectId());
 
-        User author = authService.getAuthenticatedUser(jwtAuthenticationToken);
-        postService.createPost(postRequestDto, author);
+        AuthenticatedUser author = authService.getPrincipal(jwtAuthenticationToken);
+        postService.createPost(postRequestDto, author.id());
 
         log.info("Successfully created post by user: {} in subject ID: {}",
-                author.getEmail(), postRequestDto.getSubjectId());
+                author.email(), postRequestDto.getSubjectId());
 
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
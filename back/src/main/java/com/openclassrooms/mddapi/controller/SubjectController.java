@@ -2,11 +2,13 @@ package com.openclassrooms.mddapi.controller;
 
 import com.openclassrooms.mddapi.dto.subject.SubjectResponseDto;
 import com.openclassrooms.mddapi.dto.subject.SubjectWithSubscriptionResponseDto;
-import com.openclassrooms.mddapi.entity.Subject;
-import com.openclassrooms.mddapi.entity.User;
-import com.openclassrooms.mddapi.mapper.SubjectMapper;
+import com.openclassrooms.mddapi.dto.subject.SubscriptionBatchRequestDto;
+import com.openclassrooms.mddapi.dto.subject.SubscriptionBatchResponseDto;
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
 import com.openclassrooms.mddapi.service.AuthService;
+import com.openclassrooms.mddapi.service.SubjectCatalogService;
 import com.openclassrooms.mddapi.service.SubjectService;
+import com.openclassrooms.mddapi.service.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -16,12 +18,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -33,13 +39,14 @@ import java.util.List;
 public class SubjectController {
 
     private final SubjectService subjectService;
-    private final SubjectMapper subjectMapper;
     private final AuthService authService;
+    private final TrendingService trendingService;
 
     @GetMapping
     @Operation(
             summary = "Get all available subjects",
             description = "Retrieve a list of all available subjects in the system. " +
+                    "The catalog is served from memory; its ETag changes only when a subject changes. " +
                     "This endpoint requires authentication to access."
     )
     @ApiResponses(value = {
@@ -51,6 +58,11 @@ public class SubjectController {
                             array = @ArraySchema(schema = @Schema(implementation = SubjectResponseDto.class))
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the ETag given in If-None-Match",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "401",
                     description = "Unauthorized - JWT token is missing or invalid",
@@ -63,14 +75,47 @@ public class SubjectController {
             )
     })
     @SecurityRequirement(name = "Bearer Authentication")
-    public ResponseEntity<List<SubjectResponseDto>> getAllSubjects() {
+    public ResponseEntity<byte[]> getAllSubjects(@Parameter(hidden = true) WebRequest webRequest) {
         log.info("Request to get all subjects");
 
-        List<Subject> subjects = subjectService.findAll();
-        List<SubjectResponseDto> response = subjectMapper.toSubjectResponseDtoList(subjects);
+        SubjectCatalogService.Snapshot catalog = subjectService.getCatalog();
+        if (webRequest.checkNotModified(catalog.eTag())) {
+            return null;
+        }
 
-        log.info("Successfully retrieved {} subjects", response.size());
-        return ResponseEntity.ok(response);
+        // Serialized once per catalog version, written as is
+        log.info("Successfully retrieved {} subjects", catalog.subjects().size());
+        return ResponseEntity.ok()
+                .eTag(catalog.eTag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.json());
+    }
+
+    @GetMapping("/trending")
+    @Operation(
+            summary = "Get trending subjects",
+            description = "Retrieve the subjects with the most posts and comments recently, most active first. " +
+                    "Recent activity weighs more than older activity, and activity older than the window is ignored."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved trending subjects",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = SubjectResponseDto.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized - JWT token is missing or invalid",
+                    content = @Content
+            )
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<List<SubjectResponseDto>> getTrendingSubjects() {
+        return ResponseEntity.ok(trendingService.getTrendingSubjects());
     }
 
     @GetMapping("/subscriptions/status")
@@ -102,9 +147,9 @@ public class SubjectController {
     public ResponseEntity<List<SubjectWithSubscriptionResponseDto>> getAllSubjectsWithSubscriptionStatus(
             @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken
     ) {
-        User user = authService.getAuthenticatedUser(jwtAuthenticationToken);
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
         List<SubjectWithSubscriptionResponseDto> subjects =
-                subjectService.findAllWithSubscriptionStatus(user.getId());
+                subjectService.findAllWithSubscriptionStatus(user.id());
         return ResponseEntity.ok(subjects);
     }
 
@@ -137,20 +182,21 @@ public class SubjectController {
     public ResponseEntity<List<SubjectResponseDto>> getSubscribedSubjects(
             @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken
     ) {
-        User user = authService.getAuthenticatedUser(jwtAuthenticationToken);
-        List<SubjectResponseDto> subjects = subjectService.findSubscribedSubjects(user.getId());
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+        List<SubjectResponseDto> subjects = subjectService.findSubscribedSubjects(user.id());
         return ResponseEntity.ok(subjects);
     }
 
     @PostMapping("/{subjectId}/subscribe")
     @Operation(
             summary = "Subscribe to a subject",
-            description = "Creates a subscription for the current authenticated user to the specified subject."
+            description = "Creates a subscription for the current authenticated user to the specified subject. " +
+                    "Subscribing again to the same subject has no effect."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "User successfully subscribed to the subject",
+                    description = "User subscribed to the subject, now or before",
                     content = @Content
             ),
             @ApiResponse(
@@ -163,11 +209,6 @@ public class SubjectController {
                     description = "Unauthorized - JWT token is missing or invalid",
                     content = @Content
             ),
-            @ApiResponse(
-                    responseCode = "409",
-                    description = "Conflict - User is already subscribed to this subject",
-                    content = @Content
-            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Internal server error during subscription creation",
@@ -184,20 +225,21 @@ public class SubjectController {
             )
             @PathVariable Integer subjectId
     ) {
-        User user = authService.getAuthenticatedUser(jwtAuthenticationToken);
-        subjectService.subscribeUserToSubject(user, subjectId);
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+        subjectService.subscribeUserToSubject(user.id(), subjectId);
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{subjectId}/unsubscribe")
     @Operation(
             summary = "Unsubscribe from a subject",
-            description = "Removes the subscription for the current authenticated user from the specified subject. "
+            description = "Removes the subscription for the current authenticated user from the specified subject. " +
+                    "Unsubscribing from a subject the user is not subscribed to has no effect."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "204",
-                    description = "User successfully unsubscribed from the subject",
+                    description = "User no longer subscribed to the subject",
                     content = @Content
             ),
             @ApiResponse(
@@ -205,11 +247,6 @@ public class SubjectController {
                     description = "Unauthorized - JWT token is missing or invalid",
                     content = @Content
             ),
-            @ApiResponse(
-                    responseCode = "404",
-                    description = "Subscription not found - User is not subscribed to this subject",
-                    content = @Content
-            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Internal server error during subscription removal",
@@ -226,8 +263,60 @@ public class SubjectController {
             )
             @PathVariable Integer subjectId
     ) {
-        User user = authService.getAuthenticatedUser(jwtAuthenticationToken);
-        subjectService.unsubscribeUserFromSubject(user.getId(), subjectId);
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+        subjectService.unsubscribeUserFromSubject(user.id(), subjectId);
         return ResponseEntity.noContent().build();
     }
+
+    @PostMapping("/subscriptions/batch")
+    @Operation(
+            summary = "Apply many subscription changes",
+            description = "Subscribes the current authenticated user to, or unsubscribes them from, many subjects at once, " +
+                    "in a single transaction. When a subject appears more than once, the last change wins. " +
+                    "Changes that are already in effect are ignored."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Changes applied",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = SubscriptionBatchResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data or validation errors",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized - JWT token is missing or invalid",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "A subject to subscribe to was not found; nothing is applied",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error during subscription changes",
+                    content = @Content
+            )
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<SubscriptionBatchResponseDto> applySubscriptions(
+            @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
+            @Parameter(
+                    description = "Subscription changes to apply, at most 100",
+                    required = true
+            )
+            @Valid @RequestBody SubscriptionBatchRequestDto subscriptionBatchRequestDto
+    ) {
+        AuthenticatedUser user = authService.getPrincipal(jwtAuthenticationToken);
+        SubscriptionBatchResponseDto response =
+                subjectService.applySubscriptions(user.id(), subscriptionBatchRequestDto.getOperations());
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.openclassrooms.mddapi.controller;
 
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
 import com.openclassrooms.mddapi.dto.user.UserResponseDto;
 import com.openclassrooms.mddapi.dto.user.UserUpdateRequestDto;
+import com.openclassrooms.mddapi.dto.user.UserUpdateResponseDto;
 import com.openclassrooms.mddapi.entity.User;
 import com.openclassrooms.mddapi.mapper.UserMapper;
 import com.openclassrooms.mddapi.service.AuthService;
+import com.openclassrooms.mddapi.service.JwtService;
 import com.openclassrooms.mddapi.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,9 +22,11 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @Slf4j
 @RestController
@@ -33,6 +38,7 @@ public class UserController {
     private final UserService userService;
     private final AuthService authService;
     private final UserMapper userMapper;
+    private final JwtService jwtService;
 
     @GetMapping("/{id}")
     @Operation(
@@ -48,6 +54,11 @@ public class UserController {
                             schema = @Schema(implementation = UserResponseDto.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the ETag given in If-None-Match",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Invalid user ID provided",
@@ -70,16 +81,25 @@ public class UserController {
                     required = true,
                     example = "1"
             )
-            @PathVariable Long id
+            @PathVariable Long id,
+            @Parameter(hidden = true) WebRequest webRequest
     ) {
         log.info("Retrieving user profile for ID: {}", id);
 
+        String eTag = userService.getUserETag(id);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         User user = userService.getUserById(id);
         UserResponseDto responseDto = userMapper.toUserResponseDto(user);
 
         log.info("Successfully retrieved user profile for ID: {}", id);
 
-        return ResponseEntity.ok(responseDto);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(responseDto);
     }
 
     @GetMapping("/me")
@@ -126,7 +146,8 @@ public class UserController {
     @Operation(
             summary = "Update current user profile",
             description = "Update the profile information of the currently authenticated user. " +
-                    "Only provided fields will be updated.",
+                    "Only provided fields will be updated. A new token carrying the updated identity is returned " +
+                    "and should replace the current one.",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -135,7 +156,7 @@ public class UserController {
                     description = "User profile updated successfully",
                     content = @Content(
                             mediaType = "application/json",
-                            schema = @Schema(implementation = UserResponseDto.class)
+                            schema = @Schema(implementation = UserUpdateResponseDto.class)
                     )
             ),
             @ApiResponse(
@@ -164,7 +185,7 @@ public class UserController {
                     content = @Content
             )
     })
-    public ResponseEntity<UserResponseDto> updateCurrentUser(
+    public ResponseEntity<UserUpdateResponseDto> updateCurrentUser(
             @Parameter(hidden = true) JwtAuthenticationToken jwtAuthenticationToken,
             @Parameter(
                     description = "Updated user information (only provided fields will be updated)",
@@ -174,9 +195,14 @@ public class UserController {
     ) {
         log.info("Updating current user profile");
 
-        User currentUser = authService.getAuthenticatedUser(jwtAuthenticationToken);
+        // Load a fresh copy rather than mutating the cached one
+        AuthenticatedUser principal = authService.getPrincipal(jwtAuthenticationToken);
+        User currentUser = userService.getUserById(principal.id());
         User updatedUser = userService.updateUser(userUpdateRequestDto, currentUser);
-        UserResponseDto responseDto = userMapper.toUserResponseDto(updatedUser);
+        UserUpdateResponseDto responseDto = new UserUpdateResponseDto(
+                userMapper.toUserResponseDto(updatedUser),
+                jwtService.generateToken(updatedUser, principal.sessionId())
+        );
 
         log.info("Successfully updated profile for user: {}", updatedUser.getEmail());
 
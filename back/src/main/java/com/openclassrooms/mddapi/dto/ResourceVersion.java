@@ -0,0 +1,38 @@
+package com.openclassrooms.mddapi.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Cheap version of a resource, read before the resource itself: the number of rows
+ * it is built from and the latest update among them.
+ *
+ * @param count number of rows the resource is built from
+ * @param lastModified latest update time among those rows, or null when there are none
+ */
+public record ResourceVersion(Long count, LocalDateTime lastModified) {
+
+    /**
+     * Combines this version with the version of other rows embedded in the same resource.
+     *
+     * @param other the version of the embedded rows
+     * @return the version of the whole resource
+     */
+    public ResourceVersion plus(ResourceVersion other) {
+        LocalDateTime latest = lastModified == null || (other.lastModified != null && other.lastModified.isAfter(lastModified))
+                ? other.lastModified : lastModified;
+        return new ResourceVersion(count + other.count, latest);
+    }
+
+    /**
+     * Builds the strong ETag of the resource.
+     *
+     * @param resource name and ID of the resource, e.g. {@code post-42}
+     * @return the quoted ETag value
+     */
+    public String toETag(String resource) {
+        long micros = lastModified == null ? 0
+                : lastModified.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastModified.getNano() / 1_000;
+        return "\"" + resource + "-" + count + "-" + micros + "\"";
+    }
+}
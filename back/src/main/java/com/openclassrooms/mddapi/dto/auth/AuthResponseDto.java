@@ -12,4 +12,10 @@ public class AuthResponseDto {
 
     private String token;
 
+    // Single-use token to obtain the next access token from /api/auth/refresh
+    private String refreshToken;
+
+    // Lifetime of the access token, in seconds
+    private long expiresIn;
+
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.openclassrooms.mddapi.dto.auth;
+
+/**
+ * Lightweight principal of an authenticated request, read from the JWT claims.
+ *
+ * @param id the ID of the user
+ * @param email the email of the user when the token was issued
+ * @param username the username of the user when the token was issued
+ * @param sessionId the login session of the token, null for tokens issued before sessions
+ */
+public record AuthenticatedUser(Long id, String email, String username, String sessionId) {
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.mddapi.dto.auth;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(
+        name = "RefreshRequestDto",
+        description = "Refresh token to exchange for a new access token."
+)
+public class RefreshRequestDto {
+
+    @Schema(
+            description = "Refresh token returned by the last login, registration or refresh.",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    @NotBlank
+    @Size(max = 255)
+    private String refreshToken;
+}
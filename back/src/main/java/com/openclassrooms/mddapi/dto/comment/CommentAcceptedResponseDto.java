@@ -0,0 +1,15 @@
+package com.openclassrooms.mddapi.dto.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ID of a comment just created, or accepted to be written shortly when the write-behind mode is enabled.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentAcceptedResponseDto {
+    private Long id;
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.mddapi.dto.comment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentExportDto {
+    @JsonIgnore
+    Long postId;
+    Long id;
+    String content;
+    String author;
+    LocalDateTime createdAt;
+}
@@ -1,7 +1,6 @@
 package com.openclassrooms.mddapi.dto.comment;
 
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,8 +11,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CommentResponseDto {
-    Integer id;
+    Long id;
     String content;
     String author;
-
+    LocalDateTime createdAt;
 }
\ No newline at end of file
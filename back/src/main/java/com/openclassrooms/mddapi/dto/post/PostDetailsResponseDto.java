@@ -16,4 +16,5 @@ public class PostDetailsResponseDto {
     String author;
     String subject;
     LocalDateTime createdAt;
+    Long commentCount;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.openclassrooms.mddapi.dto.post;
+
+import com.openclassrooms.mddapi.dto.comment.CommentExportDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One line of an NDJSON export: a post with all of its comments.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostExportDto {
+    Long id;
+    String title;
+    String content;
+    String author;
+    String subject;
+    LocalDateTime createdAt;
+    List<CommentExportDto> comments;
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.mddapi.dto.post;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.openclassrooms.mddapi.entity.Subject;
 import com.openclassrooms.mddapi.entity.User;
 import jakarta.persistence.Column;
@@ -23,7 +24,11 @@ import java.time.LocalDateTime;
 public class PostResponseDto {
     Long id;
     String title;
-    String content;
+    String excerpt;
     String author;
+    // Lets the in-memory copies follow a change of username
+    @JsonIgnore
+    Long authorId;
     LocalDateTime createdAt;
+    Long commentCount;
 }
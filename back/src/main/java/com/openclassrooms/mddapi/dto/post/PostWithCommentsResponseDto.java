@@ -0,0 +1,19 @@
+package com.openclassrooms.mddapi.dto.post;
+
+import com.openclassrooms.mddapi.dto.CursorPageResponseDto;
+import com.openclassrooms.mddapi.dto.comment.CommentResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Post details with the first page of its comments, newest first.
+ * The following pages are read from the comments endpoint with {@code comments.nextCursor}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostWithCommentsResponseDto {
+    private PostDetailsResponseDto post;
+    private CursorPageResponseDto<CommentResponseDto> comments;
+}
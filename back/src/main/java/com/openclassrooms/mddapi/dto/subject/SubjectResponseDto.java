@@ -15,4 +15,6 @@ public class SubjectResponseDto {
     Long id;
     String name;
     String description;
+    Long subscriberCount;
+    Long postCount;
 }
\ No newline at end of file
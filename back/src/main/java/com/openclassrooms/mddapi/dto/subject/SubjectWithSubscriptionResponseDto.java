@@ -12,5 +12,7 @@ public class SubjectWithSubscriptionResponseDto {
     Long id;
     String name;
     String description;
+    Long subscriberCount;
+    Long postCount;
     Boolean isSubscribed;
 }
\ No newline at end of file
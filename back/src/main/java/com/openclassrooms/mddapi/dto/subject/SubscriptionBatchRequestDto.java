@@ -0,0 +1,26 @@
+package com.openclassrooms.mddapi.dto.subject;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(
+        name = "SubscriptionBatchRequestDto",
+        description = "Subscription changes applied together; when a subject appears more than once, the last change wins."
+)
+public class SubscriptionBatchRequestDto {
+
+    @Schema(description = "Changes to apply, in order.", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty
+    @Size(max = 100)
+    private List<@Valid SubscriptionOperationDto> operations;
+}
@@ -0,0 +1,27 @@
+package com.openclassrooms.mddapi.dto.subject;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(
+        name = "SubscriptionBatchResponseDto",
+        description = "Outcome of a batch of subscription changes."
+)
+public class SubscriptionBatchResponseDto {
+
+    @Schema(description = "Subjects the user was not subscribed to and now is.")
+    private List<Long> subscribed;
+
+    @Schema(description = "Subjects the user was subscribed to and no longer is.")
+    private List<Long> unsubscribed;
+
+    @Schema(description = "All the subjects the user is subscribed to after the batch, in ascending order.")
+    private List<Long> subscribedSubjectIds;
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.mddapi.dto.subject;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(
+        name = "SubscriptionOperationDto",
+        description = "Subscription change to apply to one subject."
+)
+public class SubscriptionOperationDto {
+
+    public enum Action {
+        SUBSCRIBE,
+        UNSUBSCRIBE
+    }
+
+    @Schema(description = "ID of the subject.", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull
+    @Positive
+    private Long subjectId;
+
+    @Schema(description = "Change to apply.", example = "SUBSCRIBE", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull
+    private Action action;
+}
@@ -0,0 +1,22 @@
+package com.openclassrooms.mddapi.dto.user;
+
+import com.openclassrooms.mddapi.dto.auth.RegisterRequestDto;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRequestDto {
+
+    @NotEmpty
+    @Size(max = 1000)
+    @Valid
+    private List<RegisterRequestDto> users;
+}
@@ -0,0 +1,16 @@
+package com.openclassrooms.mddapi.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResponseDto {
+    int imported;
+    // Emails of the entries whose email or username was already taken
+    List<String> skipped;
+}
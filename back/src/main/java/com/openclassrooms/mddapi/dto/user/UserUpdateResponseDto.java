@@ -0,0 +1,14 @@
+package com.openclassrooms.mddapi.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserUpdateResponseDto {
+    UserResponseDto user;
+    // New token carrying the updated email and username
+    String token;
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.mddapi.entity;
+
+/**
+ * Table-based ID generation shared by the entities inserted in batches.
+ * Each sequence is a row of {@value #TABLE}; Hibernate reserves {@value #ALLOCATION_SIZE} IDs
+ * per round trip and hands them out from memory, so inserts no longer need the generated key
+ * back from the database and can be batched. A sequence is named after its table.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String POSTS = "posts";
+    public static final String COMMENTS = "comments";
+
+    private IdGenerators() {
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,11 +14,20 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_subject_created", columnList = "subject_id, created_at, id"),
+        @Index(name = "idx_posts_subject_fan_out", columnList = "subject_id, fanned_out, created_at, id")
+})
 public class Post {
 
+    // Maximum length of the feed preview, ellipsis included
+    public static final int EXCERPT_LENGTH = 280;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "post_ids")
+    @TableGenerator(name = "post_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.POSTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank
@@ -29,6 +39,10 @@ public class Post {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
+    // Preview computed at creation, so that the feed never reads the content column
+    @Column(length = EXCERPT_LENGTH)
+    private String excerpt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
@@ -37,6 +51,15 @@ public class Post {
     @JoinColumn(name = "subject_id", nullable = false)
     private Subject subject;
 
+    // False when the subject was too large to fan out: the post is then read from the subject directly
+    @Column(name = "fanned_out", nullable = false)
+    private boolean fannedOut;
+
+    // Denormalized count, written by CounterService only
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    private long commentCount;
+
     @CreationTimestamp
     @Column(updatable = false, nullable = false)
     private LocalDateTime createdAt;
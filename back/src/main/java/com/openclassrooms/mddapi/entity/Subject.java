@@ -5,11 +5,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Getter
 @Setter
@@ -29,8 +29,14 @@ public class Subject {
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    @OneToMany(mappedBy = "subject", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Post> posts;
+    // Denormalized counts, written by CounterService only
+    @ColumnDefault("0")
+    @Column(name = "subscriber_count", nullable = false, insertable = false, updatable = false)
+    private long subscriberCount;
+
+    @ColumnDefault("0")
+    @Column(name = "post_count", nullable = false, insertable = false, updatable = false)
+    private long postCount;
 
     @CreationTimestamp
     @Column(updatable = false, nullable = false)
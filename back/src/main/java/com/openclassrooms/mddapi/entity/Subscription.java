@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "subscriptions")
+@Table(name = "subscriptions", uniqueConstraints = {
+        @UniqueConstraint(name = "unique_subscription", columnNames = {"user_id", "subject_id"})
+})
 public class Subscription {
 
     @Id
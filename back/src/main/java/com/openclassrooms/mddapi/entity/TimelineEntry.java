@@ -0,0 +1,37 @@
+package com.openclassrooms.mddapi.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One post materialized in the home timeline of one user.
+ * Rows are written when the post is created (fan-out on write) and
+ * when the user subscribes to its subject (backfill).
+ */
+@Getter
+@Setter
+@Entity
+@IdClass(TimelineEntryId.class)
+@Table(name = "user_timeline", indexes = {
+        @Index(name = "idx_timeline_user_created", columnList = "user_id, created_at, post_id"),
+        @Index(name = "idx_timeline_user_subject", columnList = "user_id, subject_id")
+})
+public class TimelineEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
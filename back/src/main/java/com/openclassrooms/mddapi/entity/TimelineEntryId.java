@@ -0,0 +1,18 @@
+package com.openclassrooms.mddapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Composite primary key of {@link TimelineEntry}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntryId implements Serializable {
+    private Long userId;
+    private Long postId;
+}
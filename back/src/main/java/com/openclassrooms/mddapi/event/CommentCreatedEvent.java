@@ -0,0 +1,10 @@
+package com.openclassrooms.mddapi.event;
+
+/**
+ * Published when a comment is added to a post. Listeners should react after the transaction commits.
+ *
+ * @param postId    the ID of the commented post
+ * @param subjectId the ID of the subject the post belongs to
+ */
+public record CommentCreatedEvent(Long postId, Long subjectId) {
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.mddapi.event;
+
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+
+/**
+ * Published when a post is created. Listeners should react after the transaction commits.
+ *
+ * @param subjectId the ID of the subject the post belongs to
+ * @param post      the feed representation of the new post
+ */
+public record PostCreatedEvent(Long subjectId, PostResponseDto post) {
+}
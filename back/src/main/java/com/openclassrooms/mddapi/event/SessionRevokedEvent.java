@@ -0,0 +1,10 @@
+package com.openclassrooms.mddapi.event;
+
+/**
+ * Published when a login session is revoked, by a logout or a reused refresh token.
+ * Listeners should react after the transaction commits.
+ *
+ * @param sessionId the ID of the revoked session
+ */
+public record SessionRevokedEvent(String sessionId) {
+}
@@ -0,0 +1,7 @@
+package com.openclassrooms.mddapi.event;
+
+/**
+ * Published when new subscriber or post counts of subjects have been written to the database.
+ */
+public record SubjectCountsFlushedEvent() {
+}
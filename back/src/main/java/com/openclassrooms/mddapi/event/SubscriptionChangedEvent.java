@@ -0,0 +1,12 @@
+package com.openclassrooms.mddapi.event;
+
+/**
+ * Published when a user subscribes to or unsubscribes from a subject.
+ * Listeners should react after the transaction commits.
+ *
+ * @param userId     the ID of the user
+ * @param subjectId  the ID of the subject
+ * @param subscribed true for a new subscription, false for a removed one
+ */
+public record SubscriptionChangedEvent(Long userId, Long subjectId, boolean subscribed) {
+}
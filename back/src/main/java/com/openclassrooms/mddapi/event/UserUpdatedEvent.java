@@ -0,0 +1,11 @@
+package com.openclassrooms.mddapi.event;
+
+/**
+ * Published when a user's profile is updated.
+ * Listeners should react after the transaction commits.
+ *
+ * @param userId   the ID of the updated user
+ * @param username the username of the user after the update
+ */
+public record UserUpdatedEvent(Long userId, String username) {
+}
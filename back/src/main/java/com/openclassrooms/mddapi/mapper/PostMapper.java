@@ -18,6 +18,7 @@ public interface PostMapper {
 
     // Entity to DTO
     @Mapping(source = "author.username", target = "author")
+    @Mapping(source = "author.id", target = "authorId")
     PostResponseDto toPostResponseDto(Post post);
 
     // Entity List to DTO List
@@ -8,6 +8,7 @@ import com.openclassrooms.mddapi.entity.Subject;
 import com.openclassrooms.mddapi.entity.User;
 import org.mapstruct.Mapper;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Mapper(componentModel = "spring")
@@ -25,7 +26,7 @@ public interface SubjectMapper {
     // DTO List to Entity List
     List<Subject> toSubjectList(List<SubjectResponseDto> subjectDtos);
 
-    default SubjectWithSubscriptionResponseDto toSubjectWithSubscriptionDto(Subject subject, boolean isSubscribed) {
+    default SubjectWithSubscriptionResponseDto toSubjectWithSubscriptionDto(SubjectResponseDto subject, boolean isSubscribed) {
         if (subject == null) {
             return null;
         }
@@ -33,15 +34,19 @@ public interface SubjectMapper {
         dto.setId(subject.getId());
         dto.setName(subject.getName());
         dto.setDescription(subject.getDescription());
+        dto.setSubscriberCount(subject.getSubscriberCount());
+        dto.setPostCount(subject.getPostCount());
         dto.setIsSubscribed(isSubscribed);
         return dto;
     }
 
+    // Subscribed IDs sorted ascending, as cached by SubscriptionCacheService
     default List<SubjectWithSubscriptionResponseDto> toSubjectWithSubscriptionDtoList(
-            List<Subject> subjects, List<Long> subscribedSubjectIds) {
+            List<SubjectResponseDto> subjects, long[] subscribedSubjectIds) {
 
         return subjects.stream()
-                .map(subject -> toSubjectWithSubscriptionDto(subject, subscribedSubjectIds.contains(subject.getId())))
+                .map(subject -> toSubjectWithSubscriptionDto(subject,
+                        Arrays.binarySearch(subscribedSubjectIds, subject.getId()) >= 0))
                 .toList();
     }
 }
\ No newline at end of file
@@ -1,16 +1,52 @@
 package com.openclassrooms.mddapi.repository;
 
+import com.openclassrooms.mddapi.dto.ResourceVersion;
+import com.openclassrooms.mddapi.dto.comment.CommentExportDto;
+import com.openclassrooms.mddapi.dto.comment.CommentResponseDto;
 import com.openclassrooms.mddapi.entity.Comment;
 import com.openclassrooms.mddapi.entity.Subscription;
 import com.openclassrooms.mddapi.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    // Projection of a listed comment: no entity, post or author is loaded
+    String COMMENT_ITEM = "new com.openclassrooms.mddapi.dto.comment.CommentResponseDto(" +
+            "c.id, c.content, a.username, c.createdAt)";
+
     List<Comment> findAllByPostId(Long postId);
-    List<Comment> findAllByPostIdOrderByCreatedAtDesc(Long postId);
-}
\ No newline at end of file
+
+    // Newest first on idx_comments_post_created
+    @Query("SELECT " + COMMENT_ITEM + " FROM Comment c JOIN c.author a " +
+            "WHERE c.post.id = :postId " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentResponseDto> findFirstPageByPostId(@Param("postId") Long postId, Limit limit);
+
+    @Query("SELECT " + COMMENT_ITEM + " FROM Comment c JOIN c.author a " +
+            "WHERE c.post.id = :postId " +
+            "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentResponseDto> findPageByPostIdAfter(@Param("postId") Long postId,
+                                                   @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+
+    @Query("SELECT new com.openclassrooms.mddapi.dto.ResourceVersion(COUNT(c), MAX(greatest(c.updatedAt, a.updatedAt))) " +
+            "FROM Comment c JOIN c.author a WHERE c.post.id = :postId")
+    ResourceVersion findVersionByPostId(@Param("postId") Long postId);
+
+    // Comments of a batch of exported posts in one query, grouped by post in oldest-first order
+    @Query("SELECT new com.openclassrooms.mddapi.dto.comment.CommentExportDto(c.post.id, c.id, c.content, a.username, c.createdAt) " +
+            "FROM Comment c JOIN c.author a WHERE c.post.id IN :postIds " +
+            "ORDER BY c.post.id, c.createdAt, c.id")
+    List<CommentExportDto> findExportItemsByPostIdIn(@Param("postIds") Collection<Long> postIds);
+}
@@ -1,18 +1,133 @@
 package com.openclassrooms.mddapi.repository;
 
+import com.openclassrooms.mddapi.dto.ResourceVersion;
+import com.openclassrooms.mddapi.dto.post.PostDetailsResponseDto;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
 import com.openclassrooms.mddapi.entity.Post;
 import com.openclassrooms.mddapi.entity.Subject;
 import com.openclassrooms.mddapi.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
+    // Rows fetched per round trip by the export streams (cursor fetch on MySQL)
+    String EXPORT_FETCH_SIZE = "500";
+
     List<Post> findBySubjectIn(List<Subject> subjects);
-    List<Post> findBySubjectInOrderByCreatedAtAsc(List<Subject> subjects);
-    List<Post> findBySubjectInOrderByCreatedAtDesc(List<Subject> subjects);
 
-}
\ No newline at end of file
+    // Export streams: read-only entities scrolled with a bounded fetch size instead of a List in heap.
+    // Must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Post p JOIN FETCH p.author JOIN FETCH p.subject " +
+            "WHERE p.subject.id = :subjectId ORDER BY p.createdAt ASC, p.id ASC")
+    Stream<Post> streamBySubjectId(@Param("subjectId") Long subjectId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Post p JOIN FETCH p.author JOIN FETCH p.subject " +
+            "WHERE p.subject.id IN (SELECT s.subject.id FROM Subscription s WHERE s.user.id = :userId) " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    Stream<Post> streamFeedByUserId(@Param("userId") Long userId);
+
+    // Post details are built from the post, its author and its subject: the latest of their updates versions them
+    @Query("SELECT new com.openclassrooms.mddapi.dto.ResourceVersion(1L, greatest(p.updatedAt, a.updatedAt, s.updatedAt)) " +
+            "FROM Post p JOIN p.author a JOIN p.subject s WHERE p.id = :id")
+    Optional<ResourceVersion> findDetailsVersionById(@Param("id") Long id);
+
+    // Post details in one query, without loading the post, its author or its subject
+    @Query("SELECT new com.openclassrooms.mddapi.dto.post.PostDetailsResponseDto(" +
+            "p.id, p.title, p.content, a.username, s.name, p.createdAt, p.commentCount) " +
+            "FROM Post p JOIN p.author a JOIN p.subject s WHERE p.id = :id")
+    Optional<PostDetailsResponseDto> findDetailsItemById(@Param("id") Long id);
+
+    @Query("SELECT p.subject.id FROM Post p WHERE p.id = :id")
+    Optional<Long> findSubjectIdById(@Param("id") Long id);
+
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Post p JOIN p.author a WHERE p.id = :id")
+    Optional<PostResponseDto> findFeedItemById(@Param("id") Long id);
+
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Post p JOIN p.author a " +
+            "WHERE p.subject.id = :subjectId ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostResponseDto> findRecentBySubjectId(@Param("subjectId") Long subjectId, Limit limit);
+
+    // Content of the posts created before the excerpt column existed, by ascending ID from a keyset
+    @Query("SELECT p.id AS id, p.content AS content FROM Post p " +
+            "WHERE p.excerpt IS NULL AND p.id > :afterId ORDER BY p.id ASC")
+    List<PostContent> findContentsWithoutExcerpt(@Param("afterId") Long afterId, Limit limit);
+
+    // Fanned-out posts of a subject by ascending ID from a keyset, to backfill a new subscriber's timeline in chunks
+    @Query("SELECT p.id FROM Post p WHERE p.subject.id = :subjectId AND p.fannedOut = true AND p.id > :afterId " +
+            "ORDER BY p.id ASC")
+    List<Long> findFannedOutIdsBySubjectId(@Param("subjectId") Long subjectId, @Param("afterId") Long afterId,
+                                           Limit limit);
+
+    @Query("SELECT DISTINCT p.subject.id FROM Post p WHERE p.fannedOut = false")
+    List<Long> findSubjectIdsWithPendingFanOut();
+
+    @Modifying
+    @Query("UPDATE Post p SET p.fannedOut = true WHERE p.subject.id = :subjectId AND p.fannedOut = false")
+    int markFannedOut(@Param("subjectId") Long subjectId);
+
+    // Fan-out-on-read part of the feed: posts of subscribed subjects that were not fanned out,
+    // joined with subscriptions and authors and projected into the feed DTO in one round trip.
+    // Keyset pagination on (created_at, id), backed by idx_posts_subject_fan_out
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Subscription s " +
+            "JOIN Post p ON p.subject = s.subject JOIN p.author a " +
+            "WHERE s.user.id = :userId AND p.fannedOut = false " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostResponseDto> findNotFannedOutFirstPageDesc(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Subscription s " +
+            "JOIN Post p ON p.subject = s.subject JOIN p.author a " +
+            "WHERE s.user.id = :userId AND p.fannedOut = false " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostResponseDto> findNotFannedOutPageDescAfter(@Param("userId") Long userId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Limit limit);
+
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Subscription s " +
+            "JOIN Post p ON p.subject = s.subject JOIN p.author a " +
+            "WHERE s.user.id = :userId AND p.fannedOut = false " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    List<PostResponseDto> findNotFannedOutFirstPageAsc(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT " + TimelineEntryRepository.FEED_ITEM + " FROM Subscription s " +
+            "JOIN Post p ON p.subject = s.subject JOIN p.author a " +
+            "WHERE s.user.id = :userId AND p.fannedOut = false " +
+            "AND (p.createdAt > :createdAt OR (p.createdAt = :createdAt AND p.id > :id)) " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    List<PostResponseDto> findNotFannedOutPageAscAfter(@Param("userId") Long userId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
+    /**
+     * ID and content of a post, without loading the entity.
+     */
+    interface PostContent {
+        Long getId();
+
+        String getContent();
+    }
+}
@@ -1,11 +1,26 @@
 package com.openclassrooms.mddapi.repository;
 
-import com.openclassrooms.mddapi.entity.Post;
+import com.openclassrooms.mddapi.dto.ResourceVersion;
+import com.openclassrooms.mddapi.dto.subject.SubjectResponseDto;
 import com.openclassrooms.mddapi.entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
 
+    @Query("SELECT s.id FROM Subject s")
+    List<Long> findAllIds();
+
+    @Query("SELECT new com.openclassrooms.mddapi.dto.ResourceVersion(COUNT(s), MAX(s.updatedAt)) FROM Subject s")
+    ResourceVersion findCatalogVersion();
+
+    @Query("SELECT new com.openclassrooms.mddapi.dto.subject.SubjectResponseDto(" +
+            "s.id, s.name, s.description, s.subscriberCount, s.postCount) " +
+            "FROM Subject s ORDER BY s.id")
+    List<SubjectResponseDto> findAllResponseDtos();
+
 }
\ No newline at end of file
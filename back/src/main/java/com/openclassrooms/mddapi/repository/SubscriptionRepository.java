@@ -3,6 +3,7 @@ package com.openclassrooms.mddapi.repository;
 import com.openclassrooms.mddapi.entity.Subject;
 import com.openclassrooms.mddapi.entity.Subscription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,4 +20,20 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
 
     boolean existsByUserIdAndSubjectId(Long userId, Long subjectId);
 
+    long countBySubjectId(Long subjectId);
+
+    @Query("SELECT s.subject.id FROM Subscription s WHERE s.user.id = :userId")
+    List<Long> findSubjectIdsByUserId(@Param("userId") Long userId);
+
+    // Single statement on unique_subscription: 1 if the subscription was created, 0 if it already existed
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO subscriptions (user_id, subject_id, created_at) " +
+            "VALUES (:userId, :subjectId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertIgnore(@Param("userId") Long userId, @Param("subjectId") Long subjectId);
+
+    // 1 if the subscription was removed, 0 if there was none
+    @Modifying
+    @Query("DELETE FROM Subscription s WHERE s.user.id = :userId AND s.subject.id = :subjectId")
+    int deleteByUserIdAndSubjectId(@Param("userId") Long userId, @Param("subjectId") Long subjectId);
+
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.openclassrooms.mddapi.repository;
+
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.entity.TimelineEntry;
+import com.openclassrooms.mddapi.entity.TimelineEntryId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, TimelineEntryId> {
+
+    String FEED_ITEM = "new com.openclassrooms.mddapi.dto.post.PostResponseDto(" +
+            "p.id, p.title, p.excerpt, a.username, a.id, p.createdAt, p.commentCount)";
+
+    // Copies the post into the timeline of every current subscriber of its subject
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_timeline (user_id, post_id, subject_id, created_at) " +
+            "SELECT s.user_id, p.id, p.subject_id, p.created_at " +
+            "FROM posts p JOIN subscriptions s ON s.subject_id = p.subject_id " +
+            "WHERE p.id = :postId", nativeQuery = true)
+    int fanOutPost(@Param("postId") Long postId);
+
+    // Same as fanOutPost for every post of the subject that has not been fanned out yet
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_timeline (user_id, post_id, subject_id, created_at) " +
+            "SELECT s.user_id, p.id, p.subject_id, p.created_at " +
+            "FROM posts p JOIN subscriptions s ON s.subject_id = p.subject_id " +
+            "WHERE p.subject_id = :subjectId AND p.fanned_out = FALSE", nativeQuery = true)
+    int fanOutPendingPosts(@Param("subjectId") Long subjectId);
+
+    // Copies a chunk of the fanned-out posts of a subject into the timeline of a new subscriber
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_timeline (user_id, post_id, subject_id, created_at) " +
+            "SELECT :userId, p.id, p.subject_id, p.created_at FROM posts p " +
+            "WHERE p.id IN (:postIds)", nativeQuery = true)
+    int backfill(@Param("userId") Long userId, @Param("postIds") List<Long> postIds);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.userId = :userId AND t.subjectId = :subjectId")
+    int deleteByUserIdAndSubjectId(@Param("userId") Long userId, @Param("subjectId") Long subjectId);
+
+    // Keyset pagination on (created_at, post_id), backed by idx_timeline_user_created.
+    // Rows are projected straight into the feed DTO, without hydrating Post or User entities.
+    @Query("SELECT " + FEED_ITEM + " FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN p.author a " +
+            "WHERE t.userId = :userId " +
+            "ORDER BY t.createdAt DESC, t.postId DESC")
+    List<PostResponseDto> findFirstPageDesc(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT " + FEED_ITEM + " FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN p.author a " +
+            "WHERE t.userId = :userId " +
+            "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.postId < :id)) " +
+            "ORDER BY t.createdAt DESC, t.postId DESC")
+    List<PostResponseDto> findPageDescAfter(@Param("userId") Long userId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Limit limit);
+
+    @Query("SELECT " + FEED_ITEM + " FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN p.author a " +
+            "WHERE t.userId = :userId " +
+            "ORDER BY t.createdAt ASC, t.postId ASC")
+    List<PostResponseDto> findFirstPageAsc(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT " + FEED_ITEM + " FROM TimelineEntry t JOIN Post p ON p.id = t.postId JOIN p.author a " +
+            "WHERE t.userId = :userId " +
+            "AND (t.createdAt > :createdAt OR (t.createdAt = :createdAt AND t.postId > :id)) " +
+            "ORDER BY t.createdAt ASC, t.postId ASC")
+    List<PostResponseDto> findPageAscAfter(@Param("userId") Long userId,
+                                @Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id,
+                                Limit limit);
+}
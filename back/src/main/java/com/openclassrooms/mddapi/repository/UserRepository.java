@@ -1,9 +1,14 @@
 package com.openclassrooms.mddapi.repository;
 
+import com.openclassrooms.mddapi.dto.ResourceVersion;
 import com.openclassrooms.mddapi.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +16,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
+    boolean existsByEmailOrUsername(String email, String username);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findEmailsByEmailIn(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findUsernamesByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT new com.openclassrooms.mddapi.dto.ResourceVersion(1L, u.updatedAt) FROM User u WHERE u.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,23 +1,28 @@
 package com.openclassrooms.mddapi.service;
 
 
+import com.openclassrooms.mddapi.dto.auth.AuthResponseDto;
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
 import com.openclassrooms.mddapi.dto.auth.LoginRequestDto;
 import com.openclassrooms.mddapi.dto.auth.RegisterRequestDto;
 import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.exception.InvalidRefreshTokenException;
+import com.openclassrooms.mddapi.exception.ServerBusyException;
 import com.openclassrooms.mddapi.exception.UserAlreadyExistsException;
 import com.openclassrooms.mddapi.exception.UserNotFoundException;
 import com.openclassrooms.mddapi.repository.UserRepository;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.UUID;
+
 /**
  * Service for user authentication and registration.
  */
@@ -27,112 +32,168 @@ import lombok.extern.slf4j.Slf4j;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
-    private final AuthenticationManager authenticationManager;
+    private final UserCacheService userCacheService;
+    private final RefreshTokenService refreshTokenService;
+    private final PlatformTransactionManager transactionManager;
 
     /**
-     * Registers a new user and generates a JWT token.
+     * Registers a new user and opens a session for them.
      *
      * @param registerRequestDto contains the email, name, and password of the user
-     * @return a JWT token
+     * @return the access token and refresh token of the new session
      * @throws UserAlreadyExistsException if a user with the given email already exists
+     * @throws ServerBusyException        if the password hashing pool is saturated
      * @throws RuntimeException           if user registration or token generation fails
      */
-    @Transactional
-    public String registerUser(RegisterRequestDto registerRequestDto) {
-        // Check if the user already exists
-        if (userRepository.existsByEmail(registerRequestDto.getEmail()) ||
-                userRepository.existsByUsername(registerRequestDto.getUsername())) {
-            throw new UserAlreadyExistsException();
-        }
+    public AuthResponseDto registerUser(RegisterRequestDto registerRequestDto) {
+        // Hash before opening the transaction: no connection is held while waiting on the hashing pool
+        String passwordHash = passwordHashingService.encode(registerRequestDto.getPassword());
 
-        try {
-            // Create the new user
-            User user = new User();
-            user.setEmail(registerRequestDto.getEmail());
-            user.setUsername(registerRequestDto.getUsername());
-            user.setPassword(passwordEncoder.encode(registerRequestDto.getPassword()));
-            userRepository.save(user);
-
-            // Generate token for the created user
-            return generateTokenForUser(
-                    registerRequestDto.getEmail(),
-                    registerRequestDto.getPassword()
-            );
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to register user", e);
-        }
+        // Create the new user
+        User user = new User();
+        user.setEmail(registerRequestDto.getEmail());
+        user.setUsername(registerRequestDto.getUsername());
+        user.setPassword(passwordHash);
+
+        // Check, insert and session start in a short transaction
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Check if the user already exists, email and username in one query
+            if (userRepository.existsByEmailOrUsername(user.getEmail(), user.getUsername())) {
+                throw new UserAlreadyExistsException();
+            }
+
+            try {
+                userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                // Same email or username registered concurrently: the unique constraints have the last word
+                throw new UserAlreadyExistsException();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to register user", e);
+            }
+
+            // The password was just hashed: issue the tokens without verifying it again
+            return startSession(user);
+        });
     }
 
     /**
-     * Authenticates a user with their email and password and returns a JWT token.
+     * Authenticates a user with their email and password and opens a session for them.
+     * The user is loaded once and its password checked here, on the password hashing pool.
      *
      * @param loginRequestDto contains the email and password for authentication
-     * @return a JWT token
+     * @return the access token and refresh token of the new session
      * @throws BadCredentialsException if the email or password is incorrect
-     * @throws RuntimeException        if login or token generation fails
+     * @throws ServerBusyException     if the password hashing pool is saturated
+     * @throws RuntimeException        if token generation fails
      */
-    public String loginUser(LoginRequestDto loginRequestDto) {
-        try {
-            // Check if user exists
-            if (userRepository.findByEmail(loginRequestDto.getEmail()).isEmpty()) {
-                throw new BadCredentialsException("Invalid credentials");
-            }
+    public AuthResponseDto loginUser(LoginRequestDto loginRequestDto) {
+        // Check if user exists
+        User user = userRepository.findByEmail(loginRequestDto.getEmail())
+                .orElseThrow(() -> new BadCredentialsException("Invalid credentials"));
 
-            // Authenticate and return token
-            return generateTokenForUser(
-                    loginRequestDto.getEmail(),
-                    loginRequestDto.getPassword()
-            );
-        } catch (BadCredentialsException e) {
-            throw new BadCredentialsException("Invalid credentials");
-        } catch (Exception e) {
-            throw new RuntimeException("Login failed", e);
+        // Authenticate and return tokens
+        return generateTokenForUser(user, loginRequestDto.getPassword());
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token of its session.
+     *
+     * @param refreshToken the refresh token sent by the client
+     * @return the new access token and refresh token
+     * @throws InvalidRefreshTokenException if the refresh token is unknown, expired, revoked or already used
+     */
+    public AuthResponseDto refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        // The access token carries the current identity, not the one of the login
+        User user = userCacheService.getUser(rotation.user().getId());
+        return toAuthResponse(jwtService.generateToken(user, rotation.sessionId()), rotation.refreshToken());
+    }
+
+    /**
+     * Ends the session of the current access token: its refresh tokens and access tokens are rejected from now on.
+     *
+     * @param principal the authenticated user
+     */
+    public void logout(AuthenticatedUser principal) {
+        if (principal.sessionId() != null) {
+            refreshTokenService.revokeSession(principal.sessionId());
         }
     }
 
     /**
-     * Retrieves the currently authenticated user based on the provided JWT token.
+     * Retrieves the identity of the currently authenticated user from the claims of the JWT token,
+     * without querying the database.
      *
      * @param jwtAuthenticationToken the JWT token containing the authenticated user's identity
-     * @return the authenticated {@link User}
-     * @throws UserNotFoundException if no user is found with the given email
+     * @return the authenticated user's ID, email and username
+     * @throws UserNotFoundException if the token predates the identity claims and no user has its email
      * @throws RuntimeException      if the token is invalid or missing
      */
-    public User getAuthenticatedUser(JwtAuthenticationToken jwtAuthenticationToken) {
+    public AuthenticatedUser getPrincipal(JwtAuthenticationToken jwtAuthenticationToken) {
         if (jwtAuthenticationToken == null || jwtAuthenticationToken.getName() == null) {
             throw new RuntimeException("Invalid token");
         }
 
-        String authenticatedUserEmail = jwtAuthenticationToken.getName();
+        Jwt jwt = jwtAuthenticationToken.getToken();
+        Number userId = jwt.getClaim(JwtService.CLAIM_USER_ID);
+        if (userId != null) {
+            return new AuthenticatedUser(userId.longValue(), jwt.getSubject(),
+                    jwt.getClaimAsString(JwtService.CLAIM_USERNAME), jwt.getClaimAsString(JwtService.CLAIM_SESSION_ID));
+        }
 
-        return userRepository.findByEmail(authenticatedUserEmail)
+        // Token issued before the identity claims were added
+        String authenticatedUserEmail = jwtAuthenticationToken.getName();
+        User user = userRepository.findByEmail(authenticatedUserEmail)
                 .orElseThrow(() -> UserNotFoundException.byEmail(authenticatedUserEmail));
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getUsername(), null);
+    }
+
+    /**
+     * Retrieves the currently authenticated user entity, for the flows that need more than its identity.
+     * Users are served from a bounded, expiring cache.
+     *
+     * @param jwtAuthenticationToken the JWT token containing the authenticated user's identity
+     * @return the authenticated {@link User}, detached
+     * @throws UserNotFoundException if the user no longer exists
+     * @throws RuntimeException      if the token is invalid or missing
+     */
+    public User getAuthenticatedUser(JwtAuthenticationToken jwtAuthenticationToken) {
+        return userCacheService.getUser(getPrincipal(jwtAuthenticationToken).id());
     }
 
     /**
-     * Authenticates the user with the provided email and password
-     * using the configured {@link AuthenticationManager},
-     * then generates and returns a JWT token.
+     * Checks the provided password against the user's hash on the password hashing pool,
+     * then opens a session.
      *
-     * @param email    the user's email
+     * @param user     the user
      * @param password the user's password
-     * @return a JWT token
+     * @return the access token and refresh token of the new session
      * @throws BadCredentialsException if the credentials are invalid
+     * @throws ServerBusyException     if the password hashing pool is saturated
      * @throws RuntimeException        if token generation fails
      */
-    private String generateTokenForUser(String email, String password) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(email, password)
-            );
-            return jwtService.generateToken(authentication);
-        } catch (BadCredentialsException e) {
+    private AuthResponseDto generateTokenForUser(User user, String password) {
+        if (!passwordHashingService.matches(password, user.getPassword())) {
             throw new BadCredentialsException("Invalid credentials");
-        } catch (Exception e) {
-            throw new RuntimeException("Token generation failed", e);
         }
+        return startSession(user);
+    }
+
+    /**
+     * Opens a new session: a short-lived access token and the first refresh token of the session.
+     *
+     * @param user the user
+     * @return the access token and refresh token
+     */
+    private AuthResponseDto startSession(User user) {
+        String sessionId = UUID.randomUUID().toString();
+        String refreshToken = refreshTokenService.issue(user, sessionId);
+        return toAuthResponse(jwtService.generateToken(user, sessionId), refreshToken);
+    }
+
+    private AuthResponseDto toAuthResponse(String accessToken, String refreshToken) {
+        return new AuthResponseDto(accessToken, refreshToken, jwtService.getAccessTokenTtl().toSeconds());
     }
 }
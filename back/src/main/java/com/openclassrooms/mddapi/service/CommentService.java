@@ -1,13 +1,21 @@
 package com.openclassrooms.mddapi.service;
 
+import com.openclassrooms.mddapi.dto.CursorPageResponseDto;
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.ResourceVersion;
 import com.openclassrooms.mddapi.dto.comment.CommentRequestDto;
+import com.openclassrooms.mddapi.dto.comment.CommentResponseDto;
 import com.openclassrooms.mddapi.entity.Comment;
 import com.openclassrooms.mddapi.entity.Post;
-import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.event.CommentCreatedEvent;
+import com.openclassrooms.mddapi.exception.InvalidCursorException;
 import com.openclassrooms.mddapi.repository.CommentRepository;
 import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,15 +31,53 @@ public class CommentService {
 
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Gets all comments for a specific post.
+     * Gets one page of the comments of a post, newest first.
      *
      * @param postId the ID of the post
-     * @return list of comments ordered by creation date
+     * @param cursor opaque cursor returned by the previous page, or null for the first page
+     * @param limit  maximum number of comments to return
+     * @return the comments, with the cursor of the next page if any
+     * @throws InvalidCursorException if the cursor is malformed
      */
-    public List<Comment> getCommentsByPostId(Long postId) {
-        return commentRepository.findAllByPostIdOrderByCreatedAtDesc(postId);
+    public CursorPageResponseDto<CommentResponseDto> getComments(Long postId, String cursor, int limit) {
+        // Fetch one extra comment to know whether a next page exists
+        List<CommentResponseDto> comments = cursor == null
+                ? commentRepository.findFirstPageByPostId(postId, Limit.of(limit + 1))
+                : findPageAfter(postId, KeysetCursor.decode(cursor), limit + 1);
+
+        String nextCursor = null;
+        if (comments.size() > limit) {
+            comments = comments.subList(0, limit);
+            CommentResponseDto last = comments.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPageResponseDto<>(comments, nextCursor);
+    }
+
+    /**
+     * Gets the ETag of the comments of a post from their count and latest update,
+     * without loading the comments.
+     *
+     * @param postId the ID of the post
+     * @return the quoted ETag value
+     */
+    public String getCommentsETag(Long postId) {
+        return getCommentsVersion(postId).toETag("comments-" + postId);
+    }
+
+    /**
+     * Gets the version of the comments of a post: their count and latest update.
+     *
+     * @param postId the ID of the post
+     * @return the version of the comments
+     */
+    public ResourceVersion getCommentsVersion(Long postId) {
+        return commentRepository.findVersionByPostId(postId);
     }
 
     /**
@@ -39,11 +85,12 @@ public class CommentService {
      *
      * @param postId the ID of the post to comment on
      * @param commentRequestDto the comment data
-     * @param author the user creating the comment
+     * @param authorId the ID of the user creating the comment
+     * @return the ID of the comment
      * @throws IllegalArgumentException if post not found
      */
     @Transactional
-    public void addComment(Long postId, CommentRequestDto commentRequestDto, User author) {
+    public Long addComment(Long postId, CommentRequestDto commentRequestDto, Long authorId) {
         // Find the post
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new IllegalArgumentException("Post not found with id: " + postId));
@@ -51,9 +98,17 @@ public class CommentService {
         // Create and save comment
         Comment comment = new Comment();
         comment.setContent(commentRequestDto.getContent());
-        comment.setAuthor(author);
+        comment.setAuthor(userRepository.getReferenceById(authorId));
         comment.setPost(post);
 
         commentRepository.save(comment);
+
+        eventPublisher.publishEvent(new CommentCreatedEvent(postId, post.getSubject().getId()));
+
+        return comment.getId();
+    }
+
+    private List<CommentResponseDto> findPageAfter(Long postId, KeysetCursor after, int limit) {
+        return commentRepository.findPageByPostIdAfter(postId, after.createdAt(), after.id(), Limit.of(limit));
     }
 }
\ No newline at end of file
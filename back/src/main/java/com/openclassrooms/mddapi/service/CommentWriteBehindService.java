@@ -0,0 +1,313 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.comment.CommentRequestDto;
+import com.openclassrooms.mddapi.entity.IdGenerators;
+import com.openclassrooms.mddapi.event.CommentCreatedEvent;
+import com.openclassrooms.mddapi.exception.ServerBusyException;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service accepting comments into a bounded in-memory queue, written by a single thread in group commits:
+ * one transaction and one JDBC batch for up to {@code mdd.comments.write-behind.max-batch} comments,
+ * at most {@code mdd.comments.write-behind.max-delay-ms} after the first of them was accepted.
+ * <p>
+ * Failure contract:
+ * <ul>
+ *     <li>a comment is accepted once its post is found and it is in the queue; its ID is final;</li>
+ *     <li>a full queue, a writer not running, or a stopping application, rejects the comment
+ *     with a {@link ServerBusyException};</li>
+ *     <li>a group failing on any other error (database down, transaction not started or not committed)
+ *     is retried, after a pause, until it is written: the writer only stops once the application is stopping;</li>
+ *     <li>a group failing on a constraint (its post was deleted meanwhile) is written comment by comment,
+ *     and the comments still rejected are dropped, logged and counted;</li>
+ *     <li>the queue is drained on shutdown, within {@code mdd.comments.write-behind.shutdown-timeout};
+ *     the comments accepted by an instance that crashes before writing them are lost.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@DependsOn("counterService")
+@RequiredArgsConstructor
+public class CommentWriteBehindService {
+
+    private static final String INSERT_COMMENT = "INSERT INTO comments (id, content, author_id, post_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Same blocks as the table generator of Comment: next_val is the first ID of the next block
+    private static final String RESERVE_IDS = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN
+            + " = " + IdGenerators.VALUE_COLUMN + " + ? WHERE " + IdGenerators.NAME_COLUMN + " = ?";
+    private static final String SELECT_NEXT_ID = "SELECT " + IdGenerators.VALUE_COLUMN + " FROM " + IdGenerators.TABLE
+            + " WHERE " + IdGenerators.NAME_COLUMN + " = ?";
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mdd.comments.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mdd.comments.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${mdd.comments.write-behind.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${mdd.comments.write-behind.max-delay-ms:5}")
+    private long maxDelayMs;
+
+    @Value("${mdd.comments.write-behind.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${mdd.comments.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    private BlockingQueue<PendingComment> queue;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate idTransactionTemplate;
+    private Thread writer;
+    private volatile boolean stopping;
+
+    // Comment IDs reserved and not handed out yet, guarded by this
+    private long nextId;
+    private long idLimit;
+
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+    private Counter rejectedCounter;
+
+    /**
+     * A comment accepted and not written yet.
+     */
+    private record PendingComment(long id, Long postId, Long subjectId, Long authorId, String content,
+                                  LocalDateTime createdAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        idTransactionTemplate = new TransactionTemplate(transactionManager);
+        idTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("mdd.comments.write-behind.queued", queue, BlockingQueue::size)
+                .description("Comments accepted and waiting to be written")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("mdd.comments.write-behind.written")
+                .description("Comments written by group commits")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("mdd.comments.write-behind.dropped")
+                .description("Accepted comments rejected by the database and dropped")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("mdd.comments.write-behind.rejected")
+                .description("Comments rejected because the queue was full or the application stopping")
+                .register(meterRegistry);
+
+        writer = Thread.ofPlatform().name("comment-writer").daemon(true).start(this::runWriter);
+        log.info("Comment write-behind started with a queue of {} and groups of up to {} comments",
+                queueCapacity, maxBatch);
+    }
+
+    /**
+     * Stops accepting comments and waits for the queue to be written.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        stopping = true;
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.error("Comment write-behind did not drain within {}, {} queued comments are lost",
+                    shutdownTimeout, queue.size());
+        } else if (!queue.isEmpty()) {
+            log.error("Comment writer stopped before draining, {} queued comments are lost", queue.size());
+        }
+    }
+
+    /**
+     * Tells whether comments are accepted into the queue rather than written by the request.
+     *
+     * @return true if the write-behind mode is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepts a comment for a post, to be written with the next group commit.
+     *
+     * @param postId            the ID of the post to comment on
+     * @param commentRequestDto the comment data
+     * @param authorId          the ID of the user creating the comment
+     * @return the ID the comment will have once written
+     * @throws IllegalArgumentException if post not found
+     * @throws ServerBusyException      if the queue is full, the writer is not running or the application is stopping
+     */
+    public Long addComment(Long postId, CommentRequestDto commentRequestDto, Long authorId) {
+        if (stopping) {
+            rejectedCounter.increment();
+            throw new ServerBusyException("Comments are not accepted while the server is stopping, please retry later");
+        }
+        if (!writer.isAlive()) {
+            // Nothing would drain the queue: accepting the comment would lose it
+            rejectedCounter.increment();
+            throw new ServerBusyException("Comments cannot be written at the moment, please retry later");
+        }
+        Long subjectId = postRepository.findSubjectIdById(postId)
+                .orElseThrow(() -> new IllegalArgumentException("Post not found with id: " + postId));
+
+        PendingComment comment = new PendingComment(reserveId(), postId, subjectId, authorId,
+                commentRequestDto.getContent(), LocalDateTime.now());
+        if (!queue.offer(comment)) {
+            rejectedCounter.increment();
+            throw new ServerBusyException("Too many comments waiting to be written, please retry later");
+        }
+        return comment.id();
+    }
+
+    private synchronized long reserveId() {
+        if (nextId == idLimit) {
+            idLimit = idTransactionTemplate.execute(status -> {
+                jdbcTemplate.update(RESERVE_IDS, IdGenerators.ALLOCATION_SIZE, IdGenerators.COMMENTS);
+                return jdbcTemplate.queryForObject(SELECT_NEXT_ID, Long.class, IdGenerators.COMMENTS);
+            });
+            nextId = idLimit - IdGenerators.ALLOCATION_SIZE;
+        }
+        return nextId++;
+    }
+
+    /**
+     * Writes the queue until the application is stopping and the queue is drained.
+     * No failure of a write ends the loop: the group is kept and retried after a pause.
+     */
+    private void runWriter() {
+        List<PendingComment> group = new ArrayList<>(maxBatch);
+        try {
+            while (true) {
+                if (group.isEmpty() && !collect(group)) {
+                    log.info("Comment write-behind drained");
+                    return;
+                }
+                if (!write(group)) {
+                    Thread.sleep(retryBackoffMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Comment writer interrupted, {} comments are lost", group.size() + queue.size());
+        }
+    }
+
+    /**
+     * Waits for a comment, then gathers the next ones until the group is full or its delay elapsed.
+     *
+     * @return false once the application is stopping and the queue is empty
+     */
+    private boolean collect(List<PendingComment> group) throws InterruptedException {
+        PendingComment first;
+        while ((first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+            if (stopping) {
+                return false;
+            }
+        }
+        group.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        while (group.size() < maxBatch) {
+            queue.drainTo(group, maxBatch - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatch || remaining <= 0) {
+                break;
+            }
+            PendingComment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a group in one transaction. The comments written leave the group.
+     * Never throws: a failure other than a constraint violation leaves the whole group to retry.
+     *
+     * @return false if comments are left to retry after a pause
+     */
+    private boolean write(List<PendingComment> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_COMMENT, group, group.size(), (statement, comment) -> {
+                    Timestamp createdAt = Timestamp.valueOf(comment.createdAt());
+                    statement.setLong(1, comment.id());
+                    statement.setString(2, comment.content());
+                    statement.setLong(3, comment.authorId());
+                    statement.setLong(4, comment.postId());
+                    statement.setTimestamp(5, createdAt);
+                    statement.setTimestamp(6, createdAt);
+                });
+                // Delivered to the listeners once the group is committed
+                group.forEach(comment ->
+                        eventPublisher.publishEvent(new CommentCreatedEvent(comment.postId(), comment.subjectId())));
+            });
+            writtenCounter.increment(group.size());
+            group.clear();
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (group.size() == 1) {
+                PendingComment comment = group.removeFirst();
+                droppedCounter.increment();
+                log.warn("Dropped comment {} on post {}: {}", comment.id(), comment.postId(), e.getMessage());
+                return true;
+            }
+            // One comment fails the whole group: isolate it
+            List<PendingComment> failed = new ArrayList<>();
+            for (PendingComment comment : group) {
+                List<PendingComment> single = new ArrayList<>(List.of(comment));
+                if (!write(single)) {
+                    failed.add(comment);
+                }
+            }
+            group.clear();
+            group.addAll(failed);
+            return failed.isEmpty();
+        } catch (RuntimeException e) {
+            // Database unreachable, pool exhausted, failed commit or anything unexpected: the group is retried as is
+            log.warn("Failed to write {} comments, retrying in {} ms", group.size(), retryBackoffMs, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.openclassrooms.mddapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.mddapi.event.CommentCreatedEvent;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.event.SubjectCountsFlushedEvent;
+import com.openclassrooms.mddapi.event.SubscriptionChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service maintaining the subscriber and post counts of subjects and the comment counts of posts,
+ * so that they are displayed without counting rows.
+ * Increments go to striped in-memory counters and are written periodically as deltas,
+ * in one batched UPDATE per table, to denormalized columns. Deltas add up, so several instances
+ * can flush to the same rows.
+ * <p>
+ * The deltas of an instance that stopped without flushing are lost. {@code mdd.counters.reconcile-on-startup}
+ * recomputes the counts from the tables once, as a migration or a repair step: it must run on a single
+ * instance with no other one started, since the deltas pending in another instance would be added
+ * on top of the recomputed counts.
+ */
+@Slf4j
+@Service
+public class CounterService implements SmartInitializingSingleton {
+
+    private static final String FLUSH_SUBJECTS = "UPDATE subjects SET subscriber_count = subscriber_count + ?, " +
+            "post_count = post_count + ?, updated_at = updated_at WHERE id = ?";
+    private static final String FLUSH_POSTS =
+            "UPDATE posts SET comment_count = comment_count + ?, updated_at = updated_at WHERE id = ?";
+
+    // updated_at is assigned to itself so that MySQL does not bump it: counts are not edits.
+    // Only the rows whose count is wrong are written.
+    private static final String SUBSCRIBER_COUNT = "(SELECT COUNT(*) FROM subscriptions x WHERE x.subject_id = s.id)";
+    private static final String POST_COUNT = "(SELECT COUNT(*) FROM posts p WHERE p.subject_id = s.id)";
+    private static final String COMMENT_COUNT = "(SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)";
+    private static final String RECONCILE_SUBJECTS = "UPDATE subjects s SET subscriber_count = " + SUBSCRIBER_COUNT +
+            ", post_count = " + POST_COUNT + ", updated_at = updated_at " +
+            "WHERE subscriber_count <> " + SUBSCRIBER_COUNT + " OR post_count <> " + POST_COUNT;
+    private static final String RECONCILE_POSTS = "UPDATE posts p SET comment_count = " + COMMENT_COUNT +
+            ", updated_at = updated_at WHERE comment_count <> " + COMMENT_COUNT;
+
+    private static final String SELECT_COMMENT_COUNTS = "SELECT id, comment_count FROM posts WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Increments not written yet; replaced by a new generation at each flush
+    private volatile Generation current = new Generation();
+
+    // Generation written at the previous flush, checked once more for increments that landed late
+    private Generation previous = new Generation();
+
+    @Value("${mdd.counters.reconcile-on-startup:false}")
+    private boolean reconcileOnStartup;
+
+    @Value("${mdd.counters.cache-size:100000}")
+    private long cacheSize;
+
+    @Value("${mdd.counters.cache-ttl:1m}")
+    private Duration cacheTtl;
+
+    // Comment counts as written in the database, for the posts read recently
+    private Cache<Long, Long> flushedComments;
+
+    public CounterService(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void init() {
+        flushedComments = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Recomputes the counts from the database once all beans are created, before any request is served,
+     * when enabled for a one-off migration or repair on a single instance.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!reconcileOnStartup) {
+            return;
+        }
+        int subjects = jdbcTemplate.getJdbcTemplate().update(RECONCILE_SUBJECTS);
+        int posts = jdbcTemplate.getJdbcTemplate().update(RECONCILE_POSTS);
+        log.info("Reconciled the counts of {} subjects and {} posts; disable mdd.counters.reconcile-on-startup " +
+                "before starting other instances", subjects, posts);
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        current.add(current.subscribers, event.subjectId(), event.subscribed() ? 1 : -1);
+    }
+
+    @TransactionalEventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        current.add(current.posts, event.subjectId(), 1);
+    }
+
+    // Before the listeners reading the count of the post
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener
+    public void onCommentCreated(CommentCreatedEvent event) {
+        current.add(current.comments, event.postId(), 1);
+    }
+
+    /**
+     * Gets the comment count of a post, including the comments not written to the counts yet.
+     *
+     * @param postId the ID of the post
+     * @return the number of comments of the post
+     */
+    public long getCommentCount(Long postId) {
+        return getCommentCounts(List.of(postId)).getOrDefault(postId, 0L);
+    }
+
+    /**
+     * Gets the comment counts of posts, including the comments not written to the counts yet.
+     * Counts missing from the cache are read in one query.
+     *
+     * @param postIds the IDs of the posts
+     * @return the number of comments by post ID; posts that do not exist are left out
+     */
+    public Map<Long, Long> getCommentCounts(Collection<Long> postIds) {
+        Generation generation = current;
+        Map<Long, Long> counts = new HashMap<>(flushedComments.getAll(postIds, this::loadCommentCounts));
+        counts.replaceAll((postId, count) -> count + generation.sum(generation.comments, postId));
+        return counts;
+    }
+
+    /**
+     * Writes the pending increments to the database: one batched UPDATE per table, each in its transaction.
+     * Increments go to a new generation of counters meanwhile; the written generation is checked again
+     * at the next flush for increments that were in flight when it was replaced.
+     */
+    @Scheduled(fixedDelayString = "${mdd.counters.flush-ms:10000}")
+    public synchronized void flush() {
+        Generation written = current;
+        current = new Generation();
+
+        Set<Long> subjectIds = new HashSet<>(written.subscribers.keySet());
+        subjectIds.addAll(written.posts.keySet());
+        subjectIds.addAll(previous.subscribers.keySet());
+        subjectIds.addAll(previous.posts.keySet());
+        List<Object[]> subjectRows = new ArrayList<>();
+        for (Long subjectId : subjectIds) {
+            long subscribers = written.take(written.subscribers, subjectId) + previous.takeLate(previous.subscribers, subjectId);
+            long posts = written.take(written.posts, subjectId) + previous.takeLate(previous.posts, subjectId);
+            if (subscribers != 0 || posts != 0) {
+                subjectRows.add(new Object[]{subscribers, posts, subjectId});
+            }
+        }
+
+        Set<Long> postIds = new HashSet<>(written.comments.keySet());
+        postIds.addAll(previous.comments.keySet());
+        List<Object[]> postRows = new ArrayList<>();
+        for (Long postId : postIds) {
+            long comments = written.take(written.comments, postId) + previous.takeLate(previous.comments, postId);
+            if (comments != 0) {
+                postRows.add(new Object[]{comments, postId});
+            }
+        }
+        previous = written;
+
+        if (!subjectRows.isEmpty() && write(FLUSH_SUBJECTS, subjectRows)) {
+            eventPublisher.publishEvent(new SubjectCountsFlushedEvent());
+        } else if (!subjectRows.isEmpty()) {
+            // Retried on next flush
+            subjectRows.forEach(row -> {
+                current.add(current.subscribers, (Long) row[2], (Long) row[0]);
+                current.add(current.posts, (Long) row[2], (Long) row[1]);
+            });
+        }
+
+        if (!postRows.isEmpty() && write(FLUSH_POSTS, postRows)) {
+            // The written counts are read back on next access
+            postRows.forEach(row -> flushedComments.invalidate((Long) row[1]));
+        } else if (!postRows.isEmpty()) {
+            postRows.forEach(row -> current.add(current.comments, (Long) row[1], (Long) row[0]));
+        }
+    }
+
+    /**
+     * Writes what is pending before the application stops.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private boolean write(String sql, List<Object[]> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.getJdbcTemplate().batchUpdate(sql, rows));
+            log.debug("Flushed {} counter rows", rows.size());
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Failed to flush {} counter rows, retrying on next flush", rows.size(), e);
+            return false;
+        }
+    }
+
+    private Map<Long, Long> loadCommentCounts(Set<? extends Long> postIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_COMMENT_COUNTS, new MapSqlParameterSource("ids", postIds),
+                resultSet -> {
+                    counts.put(resultSet.getLong("id"), resultSet.getLong("comment_count"));
+                });
+        return counts;
+    }
+
+    /**
+     * Striped counters of one flush interval, by subject or post ID.
+     */
+    private static final class Generation {
+        private final Map<Long, LongAdder> subscribers = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> posts = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> comments = new ConcurrentHashMap<>();
+
+        // Sums already written, by counter
+        private final Map<LongAdder, Long> writtenSums = new HashMap<>();
+
+        void add(Map<Long, LongAdder> counters, Long id, long delta) {
+            counters.computeIfAbsent(id, key -> new LongAdder()).add(delta);
+        }
+
+        long sum(Map<Long, LongAdder> counters, Long id) {
+            LongAdder counter = counters.get(id);
+            return counter == null ? 0 : counter.sum();
+        }
+
+        long take(Map<Long, LongAdder> counters, Long id) {
+            LongAdder counter = counters.get(id);
+            if (counter == null) {
+                return 0;
+            }
+            long sum = counter.sum();
+            writtenSums.put(counter, sum);
+            return sum;
+        }
+
+        long takeLate(Map<Long, LongAdder> counters, Long id) {
+            LongAdder counter = counters.get(id);
+            return counter == null ? 0 : counter.sum() - writtenSums.getOrDefault(counter, 0L);
+        }
+    }
+}
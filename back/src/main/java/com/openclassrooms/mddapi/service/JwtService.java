@@ -1,14 +1,16 @@
 package com.openclassrooms.mddapi.service;
 
+import com.openclassrooms.mddapi.entity.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.*;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.UUID;
 
 /**
  * Service responsible for generating JSON Web Tokens (JWT) for authenticated users.
@@ -18,16 +20,28 @@ import java.time.temporal.ChronoUnit;
 @Slf4j
 public class JwtService {
 
+    // Claims carrying the identity of the user, so that requests need no lookup to know who is calling
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_USERNAME = "username";
+    // Login session the token belongs to, revoked as a whole on logout or refresh token reuse
+    public static final String CLAIM_SESSION_ID = "sid";
+
     private final JwtEncoder jwtEncoder;
 
+    @Value("${mdd.jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
     /**
-     * Generates a signed JWT token for the provided authentication information.
+     * Generates a signed JWT token for the provided user.
+     * The subject is the user's email; the ID, username and session are added as claims.
+     * Tokens are short-lived: they are renewed with the refresh token of their session.
      *
-     * @param authentication the Spring Security object representing the authenticated user
+     * @param user the authenticated user
+     * @param sessionId the ID of the login session, null for a token outside any session
      * @return a JWT token
      * @throws RuntimeException if there is an error during token creation or encoding
      */
-    public String generateToken(Authentication authentication) {
+    public String generateToken(User user, String sessionId) {
         try {
             Instant now = Instant.now();
 
@@ -35,9 +49,15 @@ public class JwtService {
             JwtClaimsSet claims = JwtClaimsSet.builder()
                     .issuer("mdd")
                     .issuedAt(now)
-                    .expiresAt(now.plus(1, ChronoUnit.DAYS))
-                    .subject(authentication.getName())
+                    .expiresAt(now.plus(accessTokenTtl))
+                    .id(UUID.randomUUID().toString())
+                    .subject(user.getEmail())
+                    .claim(CLAIM_USER_ID, user.getId())
+                    .claim(CLAIM_USERNAME, user.getUsername())
                     .build();
+            if (sessionId != null) {
+                claims = JwtClaimsSet.from(claims).claim(CLAIM_SESSION_ID, sessionId).build();
+            }
 
             // Build encoder parameters with header and claims
             JwtEncoderParameters jwtEncoderParameters = JwtEncoderParameters.from(
@@ -52,4 +72,13 @@ public class JwtService {
             throw new RuntimeException("Error generating token", e);
         }
     }
+
+    /**
+     * Returns the lifetime of the access tokens.
+     *
+     * @return the access token lifetime
+     */
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.exception.ServerBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service running BCrypt hashing and verification on a dedicated pool sized to the cores.
+ * Request threads only wait for the result, so a login storm cannot starve the other endpoints;
+ * when {@code mdd.password-hashing.queue-capacity} tasks are already waiting, new ones are
+ * rejected at once with a {@link ServerBusyException}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    // 0 means one thread per available core
+    @Value("${mdd.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${mdd.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${mdd.password-hashing.bulk-chunk-size:16}")
+    private int bulkChunkSize;
+
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("mdd.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("mdd.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks running")
+                .register(meterRegistry);
+        encodeTimer = Timer.builder("mdd.password.hashing.duration")
+                .description("Time spent hashing or verifying a password, excluding queueing")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        matchesTimer = Timer.builder("mdd.password.hashing.duration")
+                .description("Time spent hashing or verifying a password, excluding queueing")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("mdd.password.hashing.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hashes a raw password.
+     *
+     * @param rawPassword the password to hash
+     * @return the BCrypt hash
+     * @throws ServerBusyException if too many hashing tasks are already waiting
+     */
+    public String encode(String rawPassword) {
+        return run(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * Checks a raw password against a stored hash.
+     *
+     * @param rawPassword the password to check
+     * @param encodedPassword the stored BCrypt hash
+     * @return true if the password matches
+     * @throws ServerBusyException if too many hashing tasks are already waiting
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Hashes many raw passwords in parallel, for bulk imports.
+     * Passwords are hashed in chunks with at most one chunk per worker in flight,
+     * so that logins keep being served while an import runs.
+     *
+     * @param rawPasswords the passwords to hash
+     * @return the BCrypt hashes, in the same order
+     * @throws ServerBusyException if the hashing queue is full
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        Deque<Future<List<String>>> inFlight = new ArrayDeque<>();
+        try {
+            for (int from = 0; from < rawPasswords.size(); from += bulkChunkSize) {
+                List<String> chunk = rawPasswords.subList(from, Math.min(from + bulkChunkSize, rawPasswords.size()));
+                if (inFlight.size() == executor.getMaximumPoolSize()) {
+                    hashes.addAll(await(inFlight.poll()));
+                }
+                inFlight.add(submit(() -> chunk.stream()
+                        .map(rawPassword -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)))
+                        .toList()));
+            }
+            while (!inFlight.isEmpty()) {
+                hashes.addAll(await(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        return hashes;
+    }
+
+    private <T> T run(Callable<T> task) {
+        return await(submit(task));
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServerBusyException("Too many authentication requests, please retry later");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.openclassrooms.mddapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.mddapi.dto.comment.CommentExportDto;
+import com.openclassrooms.mddapi.dto.post.PostExportDto;
+import com.openclassrooms.mddapi.entity.Post;
+import com.openclassrooms.mddapi.repository.CommentRepository;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.SubjectRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting posts with their comments as newline-delimited JSON.
+ * Posts are scrolled from the database and written to the response as they are read, in
+ * batches of {@code mdd.export.batch-size}: memory use does not depend on the archive size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostExportService {
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final SubjectRepository subjectRepository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${mdd.export.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * Builds the export of all posts of a subject, oldest first.
+     *
+     * @param subjectId the ID of the subject
+     * @return the body writing the export to the response
+     * @throws IllegalArgumentException if the subject does not exist
+     */
+    public StreamingResponseBody exportSubject(Long subjectId) {
+        if (!subjectRepository.existsById(subjectId)) {
+            throw new IllegalArgumentException("Subject not found with ID: " + subjectId);
+        }
+        return output -> export(() -> postRepository.streamBySubjectId(subjectId), output);
+    }
+
+    /**
+     * Builds the export of all posts of the subjects a user is subscribed to, oldest first.
+     *
+     * @param userId the ID of the user
+     * @return the body writing the export to the response
+     */
+    public StreamingResponseBody exportFeed(Long userId) {
+        return output -> export(() -> postRepository.streamFeedByUserId(userId), output);
+    }
+
+    private void export(Supplier<Stream<Post>> query, OutputStream output) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Post> posts = query.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                // The servlet container owns the response stream
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+                List<Post> batch = new ArrayList<>(batchSize);
+                Iterator<Post> iterator = posts.iterator();
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+                    if (batch.size() == batchSize) {
+                        writeBatch(batch, writer, generator);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch, writer, generator);
+                }
+            } catch (IOException e) {
+                // Most likely the client went away: abort the scroll
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeBatch(List<Post> batch, ObjectWriter writer, JsonGenerator generator) throws IOException {
+        List<Long> postIds = batch.stream().map(Post::getId).toList();
+
+        Map<Long, List<CommentExportDto>> commentsByPostId = new HashMap<>();
+        for (CommentExportDto comment : commentRepository.findExportItemsByPostIdIn(postIds)) {
+            commentsByPostId.computeIfAbsent(comment.getPostId(), id -> new ArrayList<>()).add(comment);
+        }
+
+        for (Post post : batch) {
+            writer.writeValue(generator, new PostExportDto(
+                    post.getId(),
+                    post.getTitle(),
+                    post.getContent(),
+                    post.getAuthor().getUsername(),
+                    post.getSubject().getName(),
+                    post.getCreatedAt(),
+                    commentsByPostId.getOrDefault(post.getId(), List.of())
+            ));
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+
+        // Detach the exported posts so the persistence context does not grow with the archive
+        batch.clear();
+        entityManager.clear();
+    }
+}
@@ -1,19 +1,37 @@
 package com.openclassrooms.mddapi.service;
 
+import com.openclassrooms.mddapi.dto.CursorPageResponseDto;
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.ResourceVersion;
+import com.openclassrooms.mddapi.dto.post.PostDetailsResponseDto;
 import com.openclassrooms.mddapi.dto.post.PostRequestDto;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.dto.post.PostWithCommentsResponseDto;
 import com.openclassrooms.mddapi.entity.Post;
 import com.openclassrooms.mddapi.entity.Subject;
-import com.openclassrooms.mddapi.entity.Subscription;
-import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.exception.InvalidCursorException;
 import com.openclassrooms.mddapi.repository.PostRepository;
 import com.openclassrooms.mddapi.repository.SubjectRepository;
-import com.openclassrooms.mddapi.repository.SubscriptionRepository;
+import com.openclassrooms.mddapi.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service for managing posts.
@@ -24,62 +42,150 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PostService {
 
+    private static final String SET_EXCERPT = "UPDATE posts SET excerpt = ? WHERE id = ? AND excerpt IS NULL";
+
     private final PostRepository postRepository;
-    private final SubscriptionRepository subscriptionRepository;
     private final SubjectRepository subjectRepository;
+    private final UserRepository userRepository;
+    private final TimelineService timelineService;
+    private final SubjectFeedBufferService subjectFeedBufferService;
+    private final SubscriptionCacheService subscriptionCacheService;
+    private final CounterService counterService;
+    private final CommentService commentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${mdd.posts.excerpt-backfill-batch-size:200}")
+    private int excerptBackfillBatchSize;
 
     /**
-     * Gets all posts from subjects the user is subscribed to.
+     * Gets one page of posts from subjects the user is subscribed to.
+     * Newest-first pages are merged from the in-memory buffers of the subscribed subjects
+     * when possible; other pages are read from the user's materialized timeline, seeked
+     * from the cursor on {@code (created_at, id)} instead of using an offset.
      *
-     * @param user the authenticated user
+     * @param userId the ID of the authenticated user
      * @param sortOrder "desc" for newest first, "asc" for oldest first
-     * @return list of posts from subscribed subjects
+     * @param cursor opaque cursor returned by the previous page, or null for the first page
+     * @param limit maximum number of posts to return
+     * @return the page of posts and the cursor of the next page
+     * @throws InvalidCursorException if the cursor is malformed
      */
     @Transactional(readOnly = true)
-    public List<Post> getSubscribedPosts(User user, String sortOrder) {
-        List<Subscription> userSubscriptions = subscriptionRepository.findByUserId(user.getId());
+    public CursorPageResponseDto<PostResponseDto> getSubscribedPosts(Long userId, String sortOrder, String cursor, int limit) {
+        KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor) : null;
 
-        if (userSubscriptions.isEmpty()) {
-            return List.of();
-        }
+        boolean ascending = "asc".equals(sortOrder);
 
-        List<Subject> subscribedSubjects = userSubscriptions.stream()
-                .map(Subscription::getSubject)
-                .toList();
+        // Fetch one extra post to know whether a next page exists.
+        // Newest-first pages are served from the in-memory subject buffers whenever they cover the page.
+        List<PostResponseDto> posts = ascending
+                ? timelineService.readPage(userId, true, after, limit + 1)
+                : subjectFeedBufferService.readPage(subscriptionCacheService.getSubscribedSubjectIds(userId), after, limit + 1)
+                        .orElseGet(() -> timelineService.readPage(userId, false, after, limit + 1));
 
-        if (subscribedSubjects.isEmpty()) {
-            return List.of();
+        String nextCursor = null;
+        if (posts.size() > limit) {
+            posts = posts.subList(0, limit);
+            PostResponseDto last = posts.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
         }
 
-        if ("asc".equals(sortOrder)) {
-            return postRepository.findBySubjectInOrderByCreatedAtAsc(subscribedSubjects);
-        } else {
-            return postRepository.findBySubjectInOrderByCreatedAtDesc(subscribedSubjects);
+        return new CursorPageResponseDto<>(withCommentCounts(posts), nextCursor);
+    }
+
+    /**
+     * Gets the posts created after the given position in the user's feed, oldest first.
+     * The user's high-water mark (newest post of their subscribed subjects) is checked
+     * in memory first, so polling clients with nothing new cost no feed query.
+     *
+     * @param userId the ID of the authenticated user
+     * @param since opaque cursor of the newest post the client has already seen
+     * @param limit maximum number of posts to return
+     * @return the new posts, with the cursor to poll from next; empty if nothing is new
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public Optional<CursorPageResponseDto<PostResponseDto>> getSubscribedPostsSince(Long userId, String since, int limit) {
+        KeysetCursor after = KeysetCursor.decode(since);
+        long[] subjectIds = subscriptionCacheService.getSubscribedSubjectIds(userId);
+
+        if (!subjectFeedBufferService.hasPostsAfter(subjectIds, after)) {
+            return Optional.empty();
         }
+
+        List<PostResponseDto> posts = subjectFeedBufferService.readSince(subjectIds, after, limit)
+                .orElseGet(() -> timelineService.readPage(userId, true, after, limit));
+
+        // The client always polls again from the newest post it received
+        String nextCursor = posts.isEmpty()
+                ? since
+                : new KeysetCursor(posts.get(posts.size() - 1).getCreatedAt(), posts.get(posts.size() - 1).getId()).encode();
+
+        return Optional.of(new CursorPageResponseDto<>(withCommentCounts(posts), nextCursor));
     }
 
     /**
-     * Gets detailed information about a specific post.
+     * Gets detailed information about a specific post, read in one query with its author and subject.
      *
      * @param postId the ID of the post to retrieve
-     * @return the post entity with all details
+     * @return the post details, with its current comment count
      * @throws IllegalArgumentException if post not found
      */
-    @Transactional(readOnly = true)
-    public Post getPostDetails(Long postId) {
-        return postRepository.findById(postId)
+    public PostDetailsResponseDto getPostDetails(Long postId) {
+        PostDetailsResponseDto postDetails = postRepository.findDetailsItemById(postId)
                 .orElseThrow(() -> new IllegalArgumentException("Post not found"));
+        postDetails.setCommentCount(counterService.getCommentCount(postId));
+        return postDetails;
+    }
+
+    /**
+     * Gets the details of a post with the first page of its comments.
+     *
+     * @param postId the ID of the post to retrieve
+     * @param limit  maximum number of comments to return
+     * @return the post details and the newest comments, with the cursor of the next page if any
+     * @throws IllegalArgumentException if post not found
+     */
+    public PostWithCommentsResponseDto getPostWithComments(Long postId, int limit) {
+        return new PostWithCommentsResponseDto(getPostDetails(postId), commentService.getComments(postId, null, limit));
+    }
+
+    /**
+     * Gets the ETag of a post's details from the latest update of the post, its author and its subject,
+     * and from its comment count, without loading the post.
+     *
+     * @param postId the ID of the post
+     * @return the quoted ETag value
+     * @throws IllegalArgumentException if post not found
+     */
+    public String getPostDetailsETag(Long postId) {
+        return findDetailsVersion(postId).toETag("post-" + postId + "-c" + counterService.getCommentCount(postId));
+    }
+
+    /**
+     * Gets the ETag of a post with its first page of comments, from the versions of the post details
+     * and of its comments.
+     *
+     * @param postId the ID of the post
+     * @return the quoted ETag value
+     * @throws IllegalArgumentException if post not found
+     */
+    public String getPostWithCommentsETag(Long postId) {
+        return findDetailsVersion(postId).plus(commentService.getCommentsVersion(postId))
+                .toETag("post-comments-" + postId);
     }
 
     /**
      * Creates a new post in the specified subject.
      *
      * @param postRequestDto the post data (title, content, subject ID)
-     * @param author the user creating the post
+     * @param authorId the ID of the user creating the post
      * @throws IllegalArgumentException if subject not found
      */
     @Transactional
-    public void createPost(PostRequestDto postRequestDto, User author) {
+    public void createPost(PostRequestDto postRequestDto, Long authorId) {
         // Find the subject
         Subject subject = subjectRepository.findById(postRequestDto.getSubjectId())
                 .orElseThrow(() -> new IllegalArgumentException("Subject not found with id: " + postRequestDto.getSubjectId()));
@@ -87,9 +193,93 @@ public class PostService {
         Post post = new Post();
         post.setTitle(postRequestDto.getTitle());
         post.setContent(postRequestDto.getContent());
-        post.setAuthor(author);
+        post.setExcerpt(excerptOf(postRequestDto.getContent()));
+        post.setAuthor(userRepository.getReferenceById(authorId));
         post.setSubject(subject);
 
         postRepository.save(post);
+        timelineService.fanOut(post);
+
+        // Read back the feed item so its creation date has the precision stored in the database
+        postRepository.findFeedItemById(post.getId()).ifPresent(feedItem ->
+                eventPublisher.publishEvent(new PostCreatedEvent(subject.getId(), feedItem)));
+    }
+
+    private ResourceVersion findDetailsVersion(Long postId) {
+        return postRepository.findDetailsVersionById(postId)
+                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
+    }
+
+    /**
+     * Copies feed items with their current comment count. Feed items can come from the in-memory
+     * buffers, shared between requests, so they are not modified.
+     */
+    private List<PostResponseDto> withCommentCounts(List<PostResponseDto> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+        Map<Long, Long> commentCounts = counterService.getCommentCounts(posts.stream().map(PostResponseDto::getId).toList());
+        return posts.stream()
+                .map(post -> new PostResponseDto(post.getId(), post.getTitle(), post.getExcerpt(), post.getAuthor(),
+                        post.getAuthorId(), post.getCreatedAt(), commentCounts.getOrDefault(post.getId(), post.getCommentCount())))
+                .toList();
+    }
+
+    /**
+     * Fills the excerpt of the posts created before excerpts were stored, with the same excerpt
+     * as new posts. Posts are read and written in batches of {@code mdd.posts.excerpt-backfill-batch-size},
+     * each in its own transaction.
+     * Runs before the feed buffers are loaded from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void fillMissingExcerpts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+        int filled = 0;
+        while (true) {
+            long from = afterId;
+            List<PostRepository.PostContent> batch = transactionTemplate.execute(status -> {
+                List<PostRepository.PostContent> posts =
+                        postRepository.findContentsWithoutExcerpt(from, Limit.of(excerptBackfillBatchSize));
+                jdbcTemplate.batchUpdate(SET_EXCERPT, posts, posts.size(), (statement, post) -> {
+                    statement.setString(1, excerptOf(post.getContent()));
+                    statement.setLong(2, post.getId());
+                });
+                return posts;
+            });
+            if (batch.isEmpty()) {
+                break;
+            }
+            filled += batch.size();
+            afterId = batch.getLast().getId();
+        }
+        if (filled > 0) {
+            log.info("Filled the excerpt of {} posts", filled);
+        }
+    }
+
+    /**
+     * Builds the feed preview of a post: its content with collapsed whitespace, cut on a word
+     * boundary and ellipsized when longer than {@link Post#EXCERPT_LENGTH}.
+     *
+     * @param content the full content of the post
+     * @return the excerpt
+     */
+    static String excerptOf(String content) {
+        String text = content.strip().replaceAll("\\s+", " ");
+        if (text.length() <= Post.EXCERPT_LENGTH) {
+            return text;
+        }
+
+        int end = text.lastIndexOf(' ', Post.EXCERPT_LENGTH - 1);
+        if (end < Post.EXCERPT_LENGTH / 2) {
+            // No reasonable word boundary: cut inside the word
+            end = Post.EXCERPT_LENGTH - 1;
+        }
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + "\u2026";
     }
 }
\ No newline at end of file
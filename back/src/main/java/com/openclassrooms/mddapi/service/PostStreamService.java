@@ -0,0 +1,217 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.event.SessionRevokedEvent;
+import com.openclassrooms.mddapi.event.SubscriptionChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service pushing new posts to connected users over Server-Sent Events.
+ * Connections are indexed by subject, so a post is only routed to the users subscribed to it.
+ * Each connection buffers at most {@code mdd.stream.queue-capacity} pending posts and drops
+ * the oldest one when a slow client falls behind. Idle connections hold no thread and
+ * sends run on virtual threads.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostStreamService {
+
+    private final SubscriptionCacheService subscriptionCacheService;
+
+    private final Map<Long, Set<Connection>> connectionsBySubjectId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Connection>> connectionsByUserId = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${mdd.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${mdd.stream.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * Opens a stream of the posts created in the subjects the user is subscribed to.
+     *
+     * @param userId    the ID of the authenticated user
+     * @param sessionId the login session of the access token, closing the stream when revoked; may be null
+     * @return the emitter bound to the HTTP response
+     */
+    public SseEmitter connect(Long userId, String sessionId) {
+        Connection connection = new Connection(userId, sessionId, new SseEmitter(timeoutMs));
+
+        connection.emitter.onCompletion(() -> unregister(connection));
+        connection.emitter.onTimeout(() -> unregister(connection));
+        connection.emitter.onError(error -> unregister(connection));
+
+        connectionsByUserId.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(connection);
+        for (long subjectId : subscriptionCacheService.getSubscribedSubjectIds(userId)) {
+            connectionsBySubjectId.computeIfAbsent(subjectId, id -> ConcurrentHashMap.newKeySet()).add(connection);
+        }
+
+        log.debug("Opened post stream for user {}", userId);
+        return connection.emitter;
+    }
+
+    /**
+     * Routes a committed post to the connections subscribed to its subject.
+     *
+     * @param event the post creation
+     */
+    @TransactionalEventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        Set<Connection> connections = connectionsBySubjectId.get(event.subjectId());
+        if (connections != null) {
+            connections.forEach(connection -> connection.enqueue(event.post()));
+        }
+    }
+
+    /**
+     * Keeps the subject index of the user's open connections in line with their subscriptions.
+     *
+     * @param event the subscription change
+     */
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        Set<Connection> connections = connectionsByUserId.get(event.userId());
+        if (connections == null) {
+            return;
+        }
+        if (event.subscribed()) {
+            connectionsBySubjectId.computeIfAbsent(event.subjectId(), id -> ConcurrentHashMap.newKeySet())
+                    .addAll(connections);
+        } else {
+            Set<Connection> subjectConnections = connectionsBySubjectId.get(event.subjectId());
+            if (subjectConnections != null) {
+                subjectConnections.removeAll(connections);
+            }
+        }
+    }
+
+    /**
+     * Closes the streams opened with the access tokens of a revoked session.
+     *
+     * @param event the session revocation
+     */
+    @TransactionalEventListener
+    public void onSessionRevoked(SessionRevokedEvent event) {
+        connectionsByUserId.values().forEach(connections -> connections.stream()
+                .filter(connection -> event.sessionId().equals(connection.sessionId))
+                .forEach(connection -> {
+                    log.debug("Closing post stream of user {}: session revoked", connection.userId);
+                    connection.emitter.complete();
+                    unregister(connection);
+                }));
+    }
+
+    /**
+     * Sends a comment line on every connection so that dead clients and proxies are detected.
+     */
+    @Scheduled(fixedDelayString = "${mdd.stream.heartbeat-ms:30000}")
+    public void sendHeartbeats() {
+        connectionsByUserId.values().forEach(connections ->
+                connections.forEach(connection -> senders.execute(connection::sendHeartbeat)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionsByUserId.values().forEach(connections -> connections.forEach(connection -> connection.emitter.complete()));
+        senders.shutdown();
+    }
+
+    private void unregister(Connection connection) {
+        connectionsByUserId.computeIfPresent(connection.userId, (id, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+        connectionsBySubjectId.values().forEach(connections -> connections.remove(connection));
+    }
+
+    /**
+     * One open stream with its bounded queue of posts waiting to be sent.
+     */
+    private final class Connection {
+        private final Long userId;
+        private final String sessionId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<PostResponseDto> pending = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Connection(Long userId, String sessionId, SseEmitter emitter) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(PostResponseDto post) {
+            synchronized (pending) {
+                if (pending.size() >= queueCapacity) {
+                    pending.pollFirst();
+                }
+                pending.addLast(post);
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                PostResponseDto post;
+                synchronized (pending) {
+                    post = pending.pollFirst();
+                }
+                if (post == null) {
+                    draining.set(false);
+                    // A post may have been queued after the poll but before the flag was cleared
+                    boolean requeued;
+                    synchronized (pending) {
+                        requeued = !pending.isEmpty();
+                    }
+                    if (requeued && draining.compareAndSet(false, true)) {
+                        continue;
+                    }
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event()
+                            .name("post")
+                            .id(new KeysetCursor(post.getCreatedAt(), post.getId()).encode())
+                            .data(post, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Closing post stream of user {}: {}", userId, e.getMessage());
+                    emitter.completeWithError(e);
+                    unregister(this);
+                    return;
+                }
+            }
+        }
+
+        private void sendHeartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                unregister(this);
+            }
+        }
+    }
+}
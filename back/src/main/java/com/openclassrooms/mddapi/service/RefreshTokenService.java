@@ -0,0 +1,131 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.entity.RefreshToken;
+import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.event.SessionRevokedEvent;
+import com.openclassrooms.mddapi.exception.InvalidRefreshTokenException;
+import com.openclassrooms.mddapi.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Service issuing and rotating the refresh tokens of login sessions.
+ * Only a SHA-256 hash of each token is stored.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenRevocationService tokenRevocationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${mdd.jwt.refresh-token-ttl:30d}")
+    private Duration refreshTokenTtl;
+
+    /**
+     * Result of a rotation: the owner and session of the used token, and the token replacing it.
+     */
+    public record Rotation(User user, String sessionId, String refreshToken) {
+    }
+
+    /**
+     * Issues a new refresh token in a session.
+     *
+     * @param user the owner of the session
+     * @param sessionId the ID of the session
+     * @return the raw refresh token, to be handed to the client only
+     */
+    @Transactional
+    public String issue(User user, String sessionId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(user);
+        refreshToken.setSessionId(sessionId);
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(refreshTokenTtl));
+        refreshTokenRepository.save(refreshToken);
+
+        return rawToken;
+    }
+
+    /**
+     * Uses a refresh token: marks it as used and issues the next one of its session.
+     * A token presented after it was used means it leaked: its whole session is revoked.
+     *
+     * @param rawToken the refresh token sent by the client
+     * @return the owner, the session and the new refresh token
+     * @throws InvalidRefreshTokenException if the token is unknown, expired, revoked or already used
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(InvalidRefreshTokenException::new);
+
+        LocalDateTime now = LocalDateTime.now();
+        if (refreshToken.getRevokedAt() != null || refreshToken.getExpiresAt().isBefore(now)) {
+            throw new InvalidRefreshTokenException();
+        }
+
+        if (refreshTokenRepository.markUsed(refreshToken.getId(), now) == 0) {
+            log.warn("Refresh token reused, revoking session {}", refreshToken.getSessionId());
+            revokeSession(refreshToken.getSessionId());
+            throw new InvalidRefreshTokenException();
+        }
+
+        User user = refreshToken.getUser();
+        String nextToken = issue(user, refreshToken.getSessionId());
+        return new Rotation(user, refreshToken.getSessionId(), nextToken);
+    }
+
+    /**
+     * Revokes a session: its refresh tokens are rejected, and so are its access tokens.
+     * Its open post streams are closed once the revocation is committed.
+     *
+     * @param sessionId the ID of the session
+     */
+    @Transactional
+    public void revokeSession(String sessionId) {
+        tokenRevocationService.revoke(sessionId);
+        refreshTokenRepository.revokeSession(sessionId, LocalDateTime.now());
+        eventPublisher.publishEvent(new SessionRevokedEvent(sessionId));
+    }
+
+    /**
+     * Deletes the refresh tokens past their expiry.
+     */
+    @Scheduled(cron = "${mdd.jwt.refresh-token-cleanup-cron:0 0 4 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.openclassrooms.mddapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.mddapi.dto.ResourceVersion;
+import com.openclassrooms.mddapi.dto.subject.SubjectResponseDto;
+import com.openclassrooms.mddapi.event.SubjectCountsFlushedEvent;
+import com.openclassrooms.mddapi.repository.SubjectRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service keeping the subject catalog in memory. Subjects almost never change: the catalog is
+ * loaded once into an immutable snapshot, already mapped and serialized, and replaced as a whole
+ * when the version of the subjects table changes or new subject counts are written.
+ * Readers never see a partially built catalog.
+ */
+@Slf4j
+@Service
+public class SubjectCatalogService {
+
+    private final SubjectRepository subjectRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Snapshot snapshot;
+
+    public SubjectCatalogService(SubjectRepository subjectRepository, ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager) {
+        this.subjectRepository = subjectRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Immutable state of the catalog. The DTOs are shared between requests and must not be modified.
+     *
+     * @param version the version of the subjects table the snapshot was built from
+     * @param eTag the ETag of the catalog, derived from its content, counts included
+     * @param subjects the subjects, by ID
+     * @param subjectsById the same subjects, indexed by ID
+     * @param json the subjects serialized as a JSON array
+     */
+    public record Snapshot(ResourceVersion version, String eTag, List<SubjectResponseDto> subjects,
+                           Map<Long, SubjectResponseDto> subjectsById, byte[] json) {
+    }
+
+    /**
+     * Gets the current catalog, loading it on first access.
+     *
+     * @return the current snapshot
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    /**
+     * Gets a subject of the catalog.
+     *
+     * @param subjectId the ID of the subject
+     * @return the subject, or null if it is not in the catalog
+     */
+    public SubjectResponseDto getSubject(Long subjectId) {
+        return getSnapshot().subjectsById().get(subjectId);
+    }
+
+    /**
+     * Loads the catalog at startup rather than on the first request.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the catalog if the subjects table changed since the snapshot was built.
+     * The version query is an aggregate over the subjects, not a load of the subjects.
+     */
+    @Scheduled(fixedDelayString = "${mdd.subject-catalog.refresh-ms:30000}")
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current == null || !current.version().equals(subjectRepository.findCatalogVersion())) {
+            reload();
+        }
+    }
+
+    /**
+     * Rebuilds the catalog once new subject counts are written.
+     *
+     * @param event the counts flush
+     */
+    @EventListener
+    public void onSubjectCountsFlushed(SubjectCountsFlushedEvent event) {
+        reload();
+    }
+
+    /**
+     * Rebuilds the catalog from the database and swaps it in.
+     *
+     * @return the new snapshot
+     */
+    public synchronized Snapshot reload() {
+        Snapshot next = readOnlyTransaction.execute(status -> {
+            // Version and subjects read in the same transaction, so that they match
+            ResourceVersion version = subjectRepository.findCatalogVersion();
+            List<SubjectResponseDto> subjects = List.copyOf(subjectRepository.findAllResponseDtos());
+            Map<Long, SubjectResponseDto> subjectsById = subjects.stream()
+                    .collect(Collectors.toUnmodifiableMap(SubjectResponseDto::getId, Function.identity()));
+            byte[] json = serialize(subjects);
+            String eTag = "\"subjects-" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new Snapshot(version, eTag, subjects, subjectsById, json);
+        });
+
+        Snapshot previous = snapshot;
+        snapshot = Objects.requireNonNull(next);
+        if (previous == null || !previous.version().equals(next.version())) {
+            // Count changes are frequent: only log catalog changes
+            log.info("Loaded subject catalog {} with {} subjects", next.eTag(), next.subjects().size());
+        }
+        return next;
+    }
+
+    private byte[] serialize(List<SubjectResponseDto> subjects) {
+        try {
+            return objectMapper.writeValueAsBytes(subjects);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the subject catalog", e);
+        }
+    }
+}
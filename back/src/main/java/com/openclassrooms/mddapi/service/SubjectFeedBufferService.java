@@ -0,0 +1,318 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.event.UserUpdatedEvent;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.SubjectRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service keeping the most recent posts of each subject in memory.
+ * Newest-first feed pages are served by merging the buffers of the user's subjects,
+ * and only fall back to the database when the page goes past what is buffered.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubjectFeedBufferService {
+
+    private static final Comparator<PostResponseDto> NEWEST_FIRST =
+            Comparator.comparing(PostResponseDto::getCreatedAt).thenComparing(PostResponseDto::getId).reversed();
+
+    private final PostRepository postRepository;
+    private final SubjectRepository subjectRepository;
+
+    private final Map<Long, RingBuffer> buffersBySubjectId = new ConcurrentHashMap<>();
+
+    @Value("${mdd.feed.buffer-size:50}")
+    private int bufferSize;
+
+    /**
+     * Loads the most recent posts of every subject.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadBuffers() {
+        subjectRepository.findAllIds().forEach(this::loadBuffer);
+        log.info("Loaded feed buffers for {} subjects", buffersBySubjectId.size());
+    }
+
+    /**
+     * Adds a committed post to the buffer of its subject.
+     *
+     * @param event the post creation
+     */
+    @TransactionalEventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        RingBuffer buffer = buffersBySubjectId.get(event.subjectId());
+        if (buffer == null) {
+            // Subject created after startup: its buffer is loaded with the new post included
+            loadBuffer(event.subjectId());
+        } else {
+            buffer.add(event.post());
+        }
+    }
+
+    /**
+     * Shows the new username of a user on their buffered posts once the change is committed,
+     * as the pages read from the database do.
+     *
+     * @param event the profile update
+     */
+    @TransactionalEventListener
+    public void onUserUpdated(UserUpdatedEvent event) {
+        buffersBySubjectId.values().forEach(buffer -> buffer.renameAuthor(event.userId(), event.username()));
+    }
+
+    /**
+     * Reads a newest-first page of the feed made of the given subjects from memory.
+     *
+     * @param subjectIds the IDs of the subscribed subjects
+     * @param after      cursor of the last post already returned, or null for the first page
+     * @param limit      maximum number of posts to return
+     * @return the page, or empty if the buffers do not hold enough posts to answer exactly
+     */
+    public Optional<List<PostResponseDto>> readPage(long[] subjectIds, KeysetCursor after, int limit) {
+        PriorityQueue<MergeHead> heads = new PriorityQueue<>((a, b) -> NEWEST_FIRST.compare(a.current(), b.current()));
+
+        // Posts older than the oldest buffered post of a full buffer may be missing from memory
+        PostResponseDto floor = null;
+
+        for (long subjectId : subjectIds) {
+            RingBuffer buffer = buffersBySubjectId.get(subjectId);
+            if (buffer == null) {
+                return Optional.empty();
+            }
+            RingBuffer.Snapshot snapshot = buffer.snapshot();
+            if (snapshot.truncated() && !snapshot.posts().isEmpty()) {
+                PostResponseDto oldest = snapshot.posts().get(snapshot.posts().size() - 1);
+                if (floor == null || NEWEST_FIRST.compare(oldest, floor) < 0) {
+                    floor = oldest;
+                }
+            }
+            MergeHead head = new MergeHead(snapshot.posts(), skipUntilAfter(snapshot.posts(), after));
+            if (head.hasCurrent()) {
+                heads.add(head);
+            }
+        }
+
+        List<PostResponseDto> page = new ArrayList<>(limit);
+        while (page.size() < limit && !heads.isEmpty()) {
+            MergeHead head = heads.poll();
+            PostResponseDto post = head.current();
+            if (floor != null && NEWEST_FIRST.compare(post, floor) > 0) {
+                return Optional.empty();
+            }
+            page.add(post);
+            head.advance();
+            if (head.hasCurrent()) {
+                heads.add(head);
+            }
+        }
+
+        if (page.size() < limit && floor != null) {
+            return Optional.empty();
+        }
+        return Optional.of(page);
+    }
+
+    /**
+     * Tells whether any of the given subjects may have a post newer than the cursor.
+     * This is the high-water mark check of the user's feed: it only reads buffer heads.
+     *
+     * @param subjectIds the IDs of the subscribed subjects
+     * @param since      the newest position the client has already seen
+     * @return false only when no subject has a post newer than the cursor
+     */
+    public boolean hasPostsAfter(long[] subjectIds, KeysetCursor since) {
+        for (long subjectId : subjectIds) {
+            RingBuffer buffer = buffersBySubjectId.get(subjectId);
+            if (buffer == null) {
+                return true;
+            }
+            PostResponseDto newest = buffer.newest();
+            if (newest != null && isNewerThan(newest, since)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the posts of the given subjects created after the cursor, oldest first, from memory.
+     *
+     * @param subjectIds the IDs of the subscribed subjects
+     * @param since      the newest position the client has already seen
+     * @param limit      maximum number of posts to return
+     * @return the posts, or empty if some of them may have been evicted from the buffers
+     */
+    public Optional<List<PostResponseDto>> readSince(long[] subjectIds, KeysetCursor since, int limit) {
+        List<PostResponseDto> newer = new ArrayList<>();
+
+        for (long subjectId : subjectIds) {
+            RingBuffer buffer = buffersBySubjectId.get(subjectId);
+            if (buffer == null) {
+                return Optional.empty();
+            }
+            RingBuffer.Snapshot snapshot = buffer.snapshot();
+            List<PostResponseDto> posts = snapshot.posts();
+            if (snapshot.truncated() && isNewerThan(posts.get(posts.size() - 1), since)) {
+                // Posts between the cursor and the oldest buffered post may have been evicted
+                return Optional.empty();
+            }
+            for (PostResponseDto post : posts) {
+                if (!isNewerThan(post, since)) {
+                    break;
+                }
+                newer.add(post);
+            }
+        }
+
+        newer.sort(NEWEST_FIRST.reversed());
+        return Optional.of(newer.size() > limit ? newer.subList(0, limit) : newer);
+    }
+
+    private void loadBuffer(Long subjectId) {
+        RingBuffer buffer = new RingBuffer(bufferSize);
+        // Oldest first so that each add lands at the head of the buffer
+        List<PostResponseDto> recentPosts = postRepository.findRecentBySubjectId(subjectId, Limit.of(bufferSize));
+        for (int i = recentPosts.size() - 1; i >= 0; i--) {
+            buffer.add(recentPosts.get(i));
+        }
+        buffersBySubjectId.put(subjectId, buffer);
+    }
+
+    /**
+     * Index of the first post strictly older than the cursor in a newest-first list.
+     */
+    private static int skipUntilAfter(List<PostResponseDto> posts, KeysetCursor after) {
+        if (after == null) {
+            return 0;
+        }
+        int index = 0;
+        while (index < posts.size() && !isOlderThan(posts.get(index), after)) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isOlderThan(PostResponseDto post, KeysetCursor cursor) {
+        int byDate = post.getCreatedAt().compareTo(cursor.createdAt());
+        return byDate < 0 || (byDate == 0 && post.getId() < cursor.id());
+    }
+
+    private static boolean isNewerThan(PostResponseDto post, KeysetCursor cursor) {
+        int byDate = post.getCreatedAt().compareTo(cursor.createdAt());
+        return byDate > 0 || (byDate == 0 && post.getId() > cursor.id());
+    }
+
+    /**
+     * Position of the k-way merge in one subject's snapshot.
+     */
+    private static final class MergeHead {
+        private final List<PostResponseDto> posts;
+        private int index;
+
+        private MergeHead(List<PostResponseDto> posts, int index) {
+            this.posts = posts;
+            this.index = index;
+        }
+
+        private boolean hasCurrent() {
+            return index < posts.size();
+        }
+
+        private PostResponseDto current() {
+            return posts.get(index);
+        }
+
+        private void advance() {
+            index++;
+        }
+    }
+
+    /**
+     * Fixed-capacity buffer of the most recent posts of one subject.
+     * Once full, adding a post evicts the oldest one.
+     */
+    private static final class RingBuffer {
+        private final PostResponseDto[] slots;
+        private int head = -1;
+        private int size;
+
+        private RingBuffer(int capacity) {
+            this.slots = new PostResponseDto[capacity];
+        }
+
+        private synchronized void add(PostResponseDto post) {
+            if (size == slots.length) {
+                PostResponseDto oldest = slots[Math.floorMod(head + 1, slots.length)];
+                if (NEWEST_FIRST.compare(post, oldest) > 0) {
+                    // Older than everything buffered: it is past the buffer's floor anyway
+                    return;
+                }
+            } else {
+                size++;
+            }
+            head = (head + 1) % slots.length;
+            slots[head] = post;
+
+            // Commits can land slightly out of order: bubble the new post down to its place
+            for (int i = 0; i < size - 1; i++) {
+                int current = Math.floorMod(head - i, slots.length);
+                int older = Math.floorMod(current - 1, slots.length);
+                if (NEWEST_FIRST.compare(slots[current], slots[older]) <= 0) {
+                    break;
+                }
+                PostResponseDto swap = slots[current];
+                slots[current] = slots[older];
+                slots[older] = swap;
+            }
+        }
+
+        // Posts are shared with the snapshots already taken: they are replaced, not modified
+        private synchronized void renameAuthor(Long authorId, String author) {
+            for (int i = 0; i < slots.length; i++) {
+                PostResponseDto post = slots[i];
+                if (post != null && authorId.equals(post.getAuthorId()) && !author.equals(post.getAuthor())) {
+                    slots[i] = new PostResponseDto(post.getId(), post.getTitle(), post.getExcerpt(), author,
+                            post.getAuthorId(), post.getCreatedAt(), post.getCommentCount());
+                }
+            }
+        }
+
+        private synchronized PostResponseDto newest() {
+            return size == 0 ? null : slots[head];
+        }
+
+        private synchronized Snapshot snapshot() {
+            List<PostResponseDto> posts = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                posts.add(slots[Math.floorMod(head - i, slots.length)]);
+            }
+            return new Snapshot(posts, size == slots.length);
+        }
+
+        /**
+         * Newest-first copy of the buffer. {@code truncated} tells whether older posts may exist.
+         */
+        private record Snapshot(List<PostResponseDto> posts, boolean truncated) {
+        }
+    }
+}
@@ -2,19 +2,28 @@ package com.openclassrooms.mddapi.service;
 
 import com.openclassrooms.mddapi.dto.subject.SubjectResponseDto;
 import com.openclassrooms.mddapi.dto.subject.SubjectWithSubscriptionResponseDto;
-import com.openclassrooms.mddapi.entity.Subject;
-import com.openclassrooms.mddapi.entity.Subscription;
-import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.dto.subject.SubscriptionBatchResponseDto;
+import com.openclassrooms.mddapi.dto.subject.SubscriptionOperationDto;
+import com.openclassrooms.mddapi.event.SubscriptionChangedEvent;
 import com.openclassrooms.mddapi.mapper.SubjectMapper;
 import com.openclassrooms.mddapi.repository.SubjectRepository;
 import com.openclassrooms.mddapi.repository.SubscriptionRepository;
-import com.openclassrooms.mddapi.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Service responsible for subject-related operations.
@@ -24,18 +33,38 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SubjectService {
 
+    // INSERT ... SELECT rather than VALUES: the driver rewrites batched VALUES inserts into a single
+    // multi-row statement, which reports no count per row
+    private static final String INSERT_SUBSCRIPTION =
+            "INSERT IGNORE INTO subscriptions (user_id, subject_id, created_at) SELECT ?, ?, CURRENT_TIMESTAMP";
+    private static final String DELETE_SUBSCRIPTION =
+            "DELETE FROM subscriptions WHERE user_id = ? AND subject_id = ?";
+
     private final SubjectRepository subjectRepository;
     private final SubscriptionRepository subscriptionRepository;
-    private final UserRepository userRepository;
     private final SubjectMapper subjectMapper;
+    private final SubjectCatalogService subjectCatalogService;
+    private final SubscriptionCacheService subscriptionCacheService;
+    private final TimelineService timelineService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Retrieves the in-memory subject catalog, already serialized.
+     *
+     * @return the current catalog snapshot
+     */
+    public SubjectCatalogService.Snapshot getCatalog() {
+        return subjectCatalogService.getSnapshot();
+    }
 
     /**
-     * Retrieves all available subjects.
+     * Gets the ETag of the subject catalog, from the version of the in-memory snapshot.
      *
-     * @return List of all {@link Subject} entities
+     * @return the quoted ETag value
      */
-    public List<Subject> findAll() {
-        return subjectRepository.findAll();
+    public String getCatalogETag() {
+        return subjectCatalogService.getSnapshot().eTag();
     }
 
     /**
@@ -45,12 +74,9 @@ public class SubjectService {
      * @return List of {@link SubjectWithSubscriptionResponseDto} with subscription status
      */
     public List<SubjectWithSubscriptionResponseDto> findAllWithSubscriptionStatus(Long userId) {
-        List<Subject> allSubjects = subjectRepository.findAll();
-        List<Long> subscribedIds = subscriptionRepository.findByUserId(userId).stream()
-                .map(sub -> sub.getSubject().getId())
-                .toList();
-
-        return subjectMapper.toSubjectWithSubscriptionDtoList(allSubjects, subscribedIds);
+        return subjectMapper.toSubjectWithSubscriptionDtoList(
+                subjectCatalogService.getSnapshot().subjects(),
+                subscriptionCacheService.getSubscribedSubjectIds(userId));
     }
 
     /**
@@ -60,54 +86,144 @@ public class SubjectService {
      * @return List of {@link SubjectResponseDto} representing subscribed subjects
      */
     public List<SubjectResponseDto> findSubscribedSubjects(Long userId) {
-        List<Subscription> userSubscriptions = subscriptionRepository.findByUserId(userId);
-        List<Subject> subscribedSubjects = userSubscriptions.stream()
-                .map(Subscription::getSubject)
+        SubjectCatalogService.Snapshot catalog = subjectCatalogService.getSnapshot();
+        return Arrays.stream(subscriptionCacheService.getSubscribedSubjectIds(userId))
+                .mapToObj(subjectId -> catalog.subjectsById().get(subjectId))
+                .filter(Objects::nonNull)
                 .toList();
-
-        return subjectMapper.toSubjectResponseDtoList(subscribedSubjects);
     }
 
     /**
-     * Creates a subscription between a user and a subject.
+     * Subscribes a user to a subject. Subscribing again is a no-op.
+     * The subscription is created by a single statement relying on the unique subscription key.
      *
-     * @param user the {@link User} entity to subscribe
+     * @param userId the ID of the user to subscribe
      * @param subjectId the ID of the subject to subscribe to
-     * @throws IllegalStateException if the user is already subscribed to the subject
+     * @return true if the subscription was created, false if it already existed
      * @throws IllegalArgumentException if the subject is not found
      */
     @Transactional
-    public void subscribeUserToSubject(User user, Integer subjectId) {
-        // Check if subscription already exists
-        boolean exists = subscriptionRepository.existsByUserIdAndSubjectId(user.getId(), subjectId.longValue());
-        if (exists) {
-            throw new IllegalStateException("User is already subscribed to this subject");
+    public boolean subscribeUserToSubject(Long userId, Integer subjectId) {
+        requireSubject(subjectId.longValue());
+
+        if (subscriptionRepository.insertIgnore(userId, subjectId.longValue()) == 0) {
+            return false;
         }
 
-        // Fetch subject
-        Subject subject = subjectRepository.findById(subjectId.longValue())
-                .orElseThrow(() -> new IllegalArgumentException("Subject not found"));
+        // Bring the subject's posts into the user's timeline
+        timelineService.backfill(userId, subjectId.longValue());
 
-        // Create and save subscription
-        Subscription subscription = new Subscription();
-        subscription.setUser(user);
-        subscription.setSubject(subject);
-        subscriptionRepository.save(subscription);
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subjectId.longValue(), true));
+        return true;
     }
 
     /**
-     * Removes a subscription between a user and a subject.
+     * Unsubscribes a user from a subject. Unsubscribing again is a no-op.
      *
      * @param userId the ID of the user to unsubscribe
      * @param subjectId the ID of the subject to unsubscribe from
-     * @throws IllegalArgumentException if the subscription is not found
+     * @return true if the subscription was removed, false if there was none
      */
     @Transactional
-    public void unsubscribeUserFromSubject(Long userId, Integer subjectId) {
-        Subscription subscription = subscriptionRepository
-                .findByUserIdAndSubjectId(userId, subjectId.longValue())
-                .orElseThrow(() -> new IllegalArgumentException("Subscription not found"));
+    public boolean unsubscribeUserFromSubject(Long userId, Integer subjectId) {
+        if (subscriptionRepository.deleteByUserIdAndSubjectId(userId, subjectId.longValue()) == 0) {
+            return false;
+        }
+
+        timelineService.remove(userId, subjectId.longValue());
+
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subjectId.longValue(), false));
+        return true;
+    }
+
+    /**
+     * Applies many subscription changes in one transaction. When a subject appears more than once,
+     * the last change wins. Only actual changes are written: the insertions go in one JDBC batch
+     * and the deletions in another. A change already made by a concurrent request affects no row:
+     * it is left out of the response and publishes no event.
+     *
+     * @param userId the ID of the user
+     * @param operations the changes to apply, in order
+     * @return the subjects subscribed and unsubscribed, and the resulting subscriptions
+     * @throws IllegalArgumentException if a subscribed subject is not found
+     */
+    @Transactional
+    public SubscriptionBatchResponseDto applySubscriptions(Long userId, List<SubscriptionOperationDto> operations) {
+        Map<Long, SubscriptionOperationDto.Action> actionBySubjectId = new LinkedHashMap<>();
+        for (SubscriptionOperationDto operation : operations) {
+            actionBySubjectId.remove(operation.getSubjectId());
+            actionBySubjectId.put(operation.getSubjectId(), operation.getAction());
+        }
 
-        subscriptionRepository.delete(subscription);
+        Set<Long> current = new HashSet<>(subscriptionRepository.findSubjectIdsByUserId(userId));
+        List<Long> toSubscribe = new ArrayList<>();
+        List<Long> toUnsubscribe = new ArrayList<>();
+        actionBySubjectId.forEach((subjectId, action) -> {
+            if (action == SubscriptionOperationDto.Action.SUBSCRIBE && !current.contains(subjectId)) {
+                requireSubject(subjectId);
+                toSubscribe.add(subjectId);
+            } else if (action == SubscriptionOperationDto.Action.UNSUBSCRIBE && current.contains(subjectId)) {
+                toUnsubscribe.add(subjectId);
+            }
+        });
+
+        // Still insert-ignore and delete-by-key: a concurrent change of the same subscription affects no row
+        List<Long> subscribed = batchUpdate(INSERT_SUBSCRIPTION, userId, toSubscribe);
+        List<Long> unsubscribed = batchUpdate(DELETE_SUBSCRIPTION, userId, toUnsubscribe);
+
+        for (Long subjectId : subscribed) {
+            timelineService.backfill(userId, subjectId);
+            eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subjectId, true));
+        }
+        for (Long subjectId : unsubscribed) {
+            timelineService.remove(userId, subjectId);
+            eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subjectId, false));
+        }
+
+        // Changed by this request or concurrently, the planned subscriptions are the current ones
+        current.addAll(toSubscribe);
+        toUnsubscribe.forEach(current::remove);
+        List<Long> subscribedSubjectIds = current.stream().sorted().toList();
+
+        log.info("User {} subscribed to {} and unsubscribed from {} subjects", userId, subscribed.size(), unsubscribed.size());
+        return new SubscriptionBatchResponseDto(subscribed, unsubscribed, subscribedSubjectIds);
+    }
+
+    /**
+     * Checks the subject in the catalog, then in the database for a subject created since the last refresh.
+     *
+     * @throws IllegalArgumentException if the subject is not found
+     */
+    private void requireSubject(Long subjectId) {
+        if (subjectCatalogService.getSubject(subjectId) == null && !subjectRepository.existsById(subjectId)) {
+            throw new IllegalArgumentException("Subject not found");
+        }
+    }
+
+    /**
+     * Runs a statement once per subject in one batch.
+     *
+     * @return the subjects whose statement affected a row, in order
+     */
+    private List<Long> batchUpdate(String sql, Long userId, List<Long> subjectIds) {
+        if (subjectIds.isEmpty()) {
+            return subjectIds;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(sql, subjectIds, subjectIds.size(), (statement, subjectId) -> {
+            statement.setLong(1, userId);
+            statement.setLong(2, subjectId);
+        });
+        List<Long> applied = new ArrayList<>(subjectIds.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // SUCCESS_NO_INFO only comes from drivers reporting no count for the statement: taken as applied
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    applied.add(subjectIds.get(index));
+                }
+                index++;
+            }
+        }
+        return applied;
     }
-}
\ No newline at end of file
+}
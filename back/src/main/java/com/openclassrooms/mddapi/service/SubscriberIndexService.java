@@ -0,0 +1,174 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.event.SubscriptionChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Service keeping the subscribers of every subject in memory, as sorted arrays of user IDs,
+ * for the features reacting to new posts. The index is loaded once at startup with a streamed,
+ * ID-only query and follows the subscription changes afterwards.
+ * Subscribers are read in chunks ordered by user ID, each chunk continuing after the last ID
+ * of the previous one, so that large subjects are never copied at once.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubscriberIndexService implements SmartInitializingSingleton {
+
+    private static final String SELECT_SUBSCRIPTIONS = "SELECT subject_id, user_id FROM subscriptions";
+
+    private static final long[] NO_SUBSCRIBERS = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, SubscriberSet> subscribersBySubjectId = new ConcurrentHashMap<>();
+
+    @Value("${mdd.subscriber-index.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Loads the index once all beans are created, before any request is served.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<Long, SubscriberSet> loaded = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_SUBSCRIPTIONS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, resultSet -> {
+            loaded.computeIfAbsent(resultSet.getLong(1), subjectId -> new SubscriberSet())
+                    .append(resultSet.getLong(2));
+        });
+        loaded.values().forEach(SubscriberSet::sort);
+        subscribersBySubjectId.putAll(loaded);
+        log.info("Loaded the subscribers of {} subjects", loaded.size());
+    }
+
+    /**
+     * Gets the number of subscribers of a subject.
+     *
+     * @param subjectId the ID of the subject
+     * @return the number of subscribers
+     */
+    public int countSubscribers(Long subjectId) {
+        SubscriberSet subscribers = subscribersBySubjectId.get(subjectId);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * Gets one chunk of the subscribers of a subject.
+     *
+     * @param subjectId   the ID of the subject
+     * @param afterUserId the last user ID of the previous chunk, or 0 for the first chunk
+     * @param limit       the maximum number of user IDs to return
+     * @return the user IDs following afterUserId, in ascending order; empty when there are no more
+     */
+    public long[] getSubscribers(Long subjectId, long afterUserId, int limit) {
+        SubscriberSet subscribers = subscribersBySubjectId.get(subjectId);
+        return subscribers == null ? NO_SUBSCRIBERS : subscribers.after(afterUserId, limit);
+    }
+
+    /**
+     * Passes all the subscribers of a subject to a consumer, one chunk at a time.
+     * Subscriptions changing meanwhile may or may not be seen, but no user is passed twice.
+     *
+     * @param subjectId the ID of the subject
+     * @param chunkSize the maximum number of user IDs per chunk
+     * @param consumer  receives each chunk, in ascending user ID order
+     */
+    public void forEachSubscriberChunk(Long subjectId, int chunkSize, Consumer<long[]> consumer) {
+        long afterUserId = 0;
+        long[] chunk;
+        while ((chunk = getSubscribers(subjectId, afterUserId, chunkSize)).length > 0) {
+            consumer.accept(chunk);
+            afterUserId = chunk[chunk.length - 1];
+        }
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        if (event.subscribed()) {
+            subscribersBySubjectId.computeIfAbsent(event.subjectId(), subjectId -> new SubscriberSet())
+                    .add(event.userId());
+        } else {
+            SubscriberSet subscribers = subscribersBySubjectId.get(event.subjectId());
+            if (subscribers != null) {
+                subscribers.remove(event.userId());
+            }
+        }
+    }
+
+    /**
+     * Sorted, growable array of user IDs. Changes shift the array in place; chunks are copied out.
+     */
+    private static final class SubscriberSet {
+        private long[] userIds = new long[8];
+        private int size;
+
+        // Loading only: IDs are unique in the table, sorted once loaded
+        private void append(long userId) {
+            grow();
+            userIds[size++] = userId;
+        }
+
+        private void sort() {
+            Arrays.sort(userIds, 0, size);
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void add(long userId) {
+            int index = Arrays.binarySearch(userIds, 0, size, userId);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            grow();
+            System.arraycopy(userIds, index, userIds, index + 1, size - index);
+            userIds[index] = userId;
+            size++;
+        }
+
+        private synchronized void remove(long userId) {
+            int index = Arrays.binarySearch(userIds, 0, size, userId);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(userIds, index + 1, userIds, index, size - index - 1);
+            size--;
+            if (userIds.length > 8 && size < userIds.length / 4) {
+                userIds = Arrays.copyOf(userIds, userIds.length / 2);
+            }
+        }
+
+        private synchronized long[] after(long afterUserId, int limit) {
+            int index = Arrays.binarySearch(userIds, 0, size, afterUserId);
+            int from = index >= 0 ? index + 1 : -index - 1;
+            return Arrays.copyOfRange(userIds, from, Math.min(size, from + limit));
+        }
+
+        private void grow() {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size + (size >> 1));
+            }
+        }
+    }
+}
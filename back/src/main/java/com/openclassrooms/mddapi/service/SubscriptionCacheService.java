@@ -0,0 +1,114 @@
+package com.openclassrooms.mddapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.mddapi.event.SubscriptionChangedEvent;
+import com.openclassrooms.mddapi.repository.SubscriptionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Service caching the IDs of the subjects each user is subscribed to, as a sorted primitive array,
+ * so that feed reads and subscription checks need neither a query nor boxing.
+ * Arrays are never modified once cached: a subscription change replaces the user's array with a copy.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubscriptionCacheService {
+
+    private final SubscriptionRepository subscriptionRepository;
+
+    @Value("${mdd.subscription-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${mdd.subscription-cache.ttl:30m}")
+    private Duration ttl;
+
+    private Cache<Long, long[]> subjectIdsByUserId;
+
+    @PostConstruct
+    public void init() {
+        subjectIdsByUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    /**
+     * Gets the IDs of the subjects a user is subscribed to, loading them on first access.
+     *
+     * @param userId the ID of the user
+     * @return the subscribed subject IDs in ascending order, never null; must not be modified
+     */
+    public long[] getSubscribedSubjectIds(Long userId) {
+        return subjectIdsByUserId.get(userId, id -> {
+            long[] subjectIds = subscriptionRepository.findSubjectIdsByUserId(id).stream()
+                    .mapToLong(Long::longValue)
+                    .toArray();
+            Arrays.sort(subjectIds);
+            return subjectIds;
+        });
+    }
+
+    /**
+     * Checks whether a user is subscribed to a subject.
+     *
+     * @param userId the ID of the user
+     * @param subjectId the ID of the subject
+     * @return true if the user is subscribed to the subject
+     */
+    public boolean isSubscribed(Long userId, long subjectId) {
+        return Arrays.binarySearch(getSubscribedSubjectIds(userId), subjectId) >= 0;
+    }
+
+    /**
+     * Applies a subscription change to the cached subjects of the user once it is committed.
+     * Users not in the cache are left out: their subjects are loaded, change included, on next access.
+     *
+     * @param event the subscription change
+     */
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        subjectIdsByUserId.asMap().computeIfPresent(event.userId(), (userId, subjectIds) -> event.subscribed()
+                ? with(subjectIds, event.subjectId())
+                : without(subjectIds, event.subjectId()));
+    }
+
+    /**
+     * Copies a sorted array with a value added, or returns it unchanged if the value is present.
+     */
+    static long[] with(long[] sortedIds, long id) {
+        int index = Arrays.binarySearch(sortedIds, id);
+        if (index >= 0) {
+            return sortedIds;
+        }
+        int insertAt = -index - 1;
+        long[] result = new long[sortedIds.length + 1];
+        System.arraycopy(sortedIds, 0, result, 0, insertAt);
+        result[insertAt] = id;
+        System.arraycopy(sortedIds, insertAt, result, insertAt + 1, sortedIds.length - insertAt);
+        return result;
+    }
+
+    /**
+     * Copies a sorted array with a value removed, or returns it unchanged if the value is absent.
+     */
+    static long[] without(long[] sortedIds, long id) {
+        int index = Arrays.binarySearch(sortedIds, id);
+        if (index < 0) {
+            return sortedIds;
+        }
+        long[] result = new long[sortedIds.length - 1];
+        System.arraycopy(sortedIds, 0, result, 0, index);
+        System.arraycopy(sortedIds, index + 1, result, index, sortedIds.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.entity.Post;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.TimelineEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service maintaining the materialized home timeline of each user.
+ * Posts are copied into the timeline of every subscriber when they are created,
+ * except in subjects with more than {@code mdd.timeline.fan-out-max-subscribers}
+ * subscribers, whose posts are read from the subject at feed time instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimelineService {
+
+    private static final Comparator<PostResponseDto> OLDEST_FIRST =
+            Comparator.comparing(PostResponseDto::getCreatedAt).thenComparing(PostResponseDto::getId);
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final PostRepository postRepository;
+    private final SubscriberIndexService subscriberIndexService;
+
+    @Value("${mdd.timeline.fan-out-max-subscribers:5000}")
+    private long fanOutMaxSubscribers;
+
+    @Value("${mdd.timeline.backfill-size:500}")
+    private int backfillSize;
+
+    /**
+     * Fans out posts created before the timeline existed, except in the subjects too large to fan out.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void fanOutPendingPosts() {
+        for (Long subjectId : postRepository.findSubjectIdsWithPendingFanOut()) {
+            if (subscriberIndexService.countSubscribers(subjectId) > fanOutMaxSubscribers) {
+                continue;
+            }
+            int inserted = timelineEntryRepository.fanOutPendingPosts(subjectId);
+            postRepository.markFannedOut(subjectId);
+            log.info("Fanned out pending posts of subject {} ({} timeline entries)", subjectId, inserted);
+        }
+    }
+
+    /**
+     * Decides how a new post reaches its subscribers and, for subjects small enough,
+     * copies it into their timelines. Must run in the transaction creating the post.
+     *
+     * @param post the persisted post
+     */
+    @Transactional
+    public void fanOut(Post post) {
+        Long subjectId = post.getSubject().getId();
+
+        if (subscriberIndexService.countSubscribers(subjectId) > fanOutMaxSubscribers) {
+            post.setFannedOut(false);
+            return;
+        }
+
+        post.setFannedOut(true);
+        postRepository.saveAndFlush(post);
+        timelineEntryRepository.fanOutPost(post.getId());
+    }
+
+    /**
+     * Copies every fanned-out post of a subject into the timeline of a new subscriber, in chunks of
+     * {@code mdd.timeline.backfill-size} posts, so that paging reaches the whole history of the subject.
+     * Posts that were not fanned out are read from the subject at feed time.
+     *
+     * @param userId    the ID of the subscribing user
+     * @param subjectId the ID of the subject
+     */
+    @Transactional
+    public void backfill(Long userId, Long subjectId) {
+        long afterId = 0;
+        List<Long> postIds;
+        do {
+            postIds = postRepository.findFannedOutIdsBySubjectId(subjectId, afterId, Limit.of(backfillSize));
+            if (!postIds.isEmpty()) {
+                timelineEntryRepository.backfill(userId, postIds);
+                afterId = postIds.getLast();
+            }
+        } while (postIds.size() == backfillSize);
+    }
+
+    /**
+     * Removes the posts of a subject from the timeline of a former subscriber.
+     *
+     * @param userId    the ID of the unsubscribing user
+     * @param subjectId the ID of the subject
+     */
+    @Transactional
+    public void remove(Long userId, Long subjectId) {
+        timelineEntryRepository.deleteByUserIdAndSubjectId(userId, subjectId);
+    }
+
+    /**
+     * Reads a page of the user's feed from their timeline, merged with the posts
+     * of subscribed subjects that were not fanned out.
+     *
+     * @param userId    the ID of the user
+     * @param ascending true for oldest first, false for newest first
+     * @param after     cursor of the last post already returned, or null for the first page
+     * @param limit     maximum number of posts to return
+     * @return up to {@code limit} feed items in feed order
+     */
+    @Transactional(readOnly = true)
+    public List<PostResponseDto> readPage(Long userId, boolean ascending, KeysetCursor after, int limit) {
+        Limit fetchLimit = Limit.of(limit);
+        List<PostResponseDto> fannedOut;
+
+        if (ascending) {
+            fannedOut = after == null
+                    ? timelineEntryRepository.findFirstPageAsc(userId, fetchLimit)
+                    : timelineEntryRepository.findPageAscAfter(userId, after.createdAt(), after.id(), fetchLimit);
+        } else {
+            fannedOut = after == null
+                    ? timelineEntryRepository.findFirstPageDesc(userId, fetchLimit)
+                    : timelineEntryRepository.findPageDescAfter(userId, after.createdAt(), after.id(), fetchLimit);
+        }
+
+        // Always read, whichever instance created the posts: a subscribed subject whose posts
+        // were all fanned out costs one probe of idx_posts_subject_fan_out
+        List<PostResponseDto> notFannedOut;
+        if (ascending) {
+            notFannedOut = after == null
+                    ? postRepository.findNotFannedOutFirstPageAsc(userId, fetchLimit)
+                    : postRepository.findNotFannedOutPageAscAfter(userId, after.createdAt(), after.id(), fetchLimit);
+        } else {
+            notFannedOut = after == null
+                    ? postRepository.findNotFannedOutFirstPageDesc(userId, fetchLimit)
+                    : postRepository.findNotFannedOutPageDescAfter(userId, after.createdAt(), after.id(), fetchLimit);
+        }
+
+        return merge(fannedOut, notFannedOut, ascending ? OLDEST_FIRST : OLDEST_FIRST.reversed(), limit);
+    }
+
+    /**
+     * Merges two lists sorted with the same comparator, keeping the first {@code limit} elements.
+     */
+    private List<PostResponseDto> merge(List<PostResponseDto> left, List<PostResponseDto> right, Comparator<PostResponseDto> order, int limit) {
+        List<PostResponseDto> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < left.size() || j < right.size())) {
+            if (j >= right.size() || (i < left.size() && order.compare(left.get(i), right.get(j)) <= 0)) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,76 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service keeping the revoked login sessions in memory, so that checking an access token
+ * costs a map lookup instead of a query. A session only needs to stay in the set for the
+ * lifetime of an access token: later tokens can only be obtained through its refresh tokens,
+ * which are revoked in the database. The set is rebuilt from the database at startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final Map<String, Instant> revokedUntilBySessionId = new ConcurrentHashMap<>();
+
+    @Value("${mdd.jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
+    /**
+     * Loads the sessions revoked recently enough for their access tokens to still be valid.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevokedSessions() {
+        Instant until = Instant.now().plus(accessTokenTtl);
+        refreshTokenRepository.findSessionIdsRevokedSince(LocalDateTime.now().minus(accessTokenTtl))
+                .forEach(sessionId -> revokedUntilBySessionId.put(sessionId, until));
+        log.info("Loaded {} revoked sessions", revokedUntilBySessionId.size());
+    }
+
+    /**
+     * Rejects the access tokens of a session from now on.
+     *
+     * @param sessionId the ID of the revoked session
+     */
+    public void revoke(String sessionId) {
+        revokedUntilBySessionId.put(sessionId, Instant.now().plus(accessTokenTtl));
+    }
+
+    /**
+     * Checks whether an access token belongs to a revoked session.
+     *
+     * @param jwt the decoded access token
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(Jwt jwt) {
+        String sessionId = jwt.getClaimAsString(JwtService.CLAIM_SESSION_ID);
+        return sessionId != null && revokedUntilBySessionId.containsKey(sessionId);
+    }
+
+    /**
+     * Forgets the sessions whose access tokens have all expired.
+     */
+    @Scheduled(fixedDelayString = "${mdd.jwt.revocation-purge-ms:300000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revokedUntilBySessionId.values().removeIf(until -> until.isBefore(now));
+    }
+}
@@ -0,0 +1,254 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.dto.subject.SubjectResponseDto;
+import com.openclassrooms.mddapi.event.CommentCreatedEvent;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.event.UserUpdatedEvent;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service ranking the subjects and posts with the most recent activity, from the posts and comments
+ * created while the application runs. Activity is counted in time buckets over a sliding window,
+ * older buckets weighing less, and the top of each ranking is kept up to date on every write:
+ * reading a ranking never touches the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrendingService {
+
+    private final SubjectCatalogService subjectCatalogService;
+    private final PostRepository postRepository;
+    private final CounterService counterService;
+
+    // Feed items of the posts with activity in the window
+    private final Map<Long, PostResponseDto> postsById = new ConcurrentHashMap<>();
+
+    @Value("${mdd.trending.bucket-ms:3600000}")
+    private long bucketMs;
+
+    @Value("${mdd.trending.buckets:24}")
+    private int bucketCount;
+
+    @Value("${mdd.trending.half-life:6h}")
+    private Duration halfLife;
+
+    @Value("${mdd.trending.size:10}")
+    private int size;
+
+    private ActivityWindow subjectActivity;
+    private ActivityWindow postActivity;
+
+    @PostConstruct
+    public void init() {
+        double[] weights = new double[bucketCount];
+        for (int age = 0; age < bucketCount; age++) {
+            weights[age] = Math.pow(0.5, (double) age * bucketMs / halfLife.toMillis());
+        }
+        subjectActivity = new ActivityWindow(weights, size);
+        postActivity = new ActivityWindow(weights, size);
+    }
+
+    /**
+     * Gets the subjects with the most recent activity.
+     *
+     * @return the trending subjects, most active first
+     */
+    public List<SubjectResponseDto> getTrendingSubjects() {
+        return subjectActivity.top().stream()
+                .map(ranked -> subjectCatalogService.getSubject(ranked.id()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Gets the posts with the most recent activity.
+     *
+     * @return the trending posts, most active first
+     */
+    public List<PostResponseDto> getTrendingPosts() {
+        return postActivity.top().stream()
+                .map(ranked -> postsById.get(ranked.id()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @TransactionalEventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        postsById.put(event.post().getId(), event.post());
+        postActivity.record(event.post().getId());
+        subjectActivity.record(event.subjectId());
+    }
+
+    @TransactionalEventListener
+    public void onCommentCreated(CommentCreatedEvent event) {
+        PostResponseDto post = postsById.get(event.postId());
+        if (post != null) {
+            postsById.put(event.postId(), withCommentCount(post, post.getCommentCount() + 1));
+        } else {
+            // First activity of the post in the window
+            postRepository.findFeedItemById(event.postId()).ifPresent(feedItem -> postsById.put(event.postId(),
+                    withCommentCount(feedItem, counterService.getCommentCount(event.postId()))));
+        }
+        postActivity.record(event.postId());
+        subjectActivity.record(event.subjectId());
+    }
+
+    /**
+     * Shows the new username of a user on their tracked posts once the change is committed.
+     *
+     * @param event the profile update
+     */
+    @TransactionalEventListener
+    public void onUserUpdated(UserUpdatedEvent event) {
+        postsById.replaceAll((postId, post) -> event.userId().equals(post.getAuthorId())
+                && !event.username().equals(post.getAuthor()) ? withAuthor(post, event.username()) : post);
+    }
+
+    /**
+     * Starts a new time bucket: the oldest bucket leaves the window, the others weigh less,
+     * and the rankings are recomputed. Subjects and posts without activity left in the window are forgotten.
+     */
+    @Scheduled(fixedRateString = "${mdd.trending.bucket-ms:3600000}", initialDelayString = "${mdd.trending.bucket-ms:3600000}")
+    public void advance() {
+        subjectActivity.advance();
+        List<Long> expiredPostIds = postActivity.advance();
+        expiredPostIds.forEach(postsById::remove);
+        log.debug("Trending window advanced, {} posts left the window", expiredPostIds.size());
+    }
+
+    private static PostResponseDto withCommentCount(PostResponseDto post, long commentCount) {
+        return new PostResponseDto(post.getId(), post.getTitle(), post.getExcerpt(), post.getAuthor(),
+                post.getAuthorId(), post.getCreatedAt(), commentCount);
+    }
+
+    private static PostResponseDto withAuthor(PostResponseDto post, String author) {
+        return new PostResponseDto(post.getId(), post.getTitle(), post.getExcerpt(), author,
+                post.getAuthorId(), post.getCreatedAt(), post.getCommentCount());
+    }
+
+    /**
+     * Decayed score of an ID in a ranking.
+     *
+     * @param id    the subject or post ID
+     * @param score the weighted activity of the window
+     */
+    record Ranked(Long id, double score) {
+    }
+
+    /**
+     * Activity counts by ID in a ring of time buckets, with the top IDs by decayed score.
+     * Writes are serialized; the top is published as an immutable list.
+     */
+    static final class ActivityWindow {
+
+        private static final Comparator<Ranked> MOST_ACTIVE_FIRST =
+                Comparator.comparingDouble(Ranked::score).thenComparing(Ranked::id).reversed();
+
+        private final double[] weights;
+        private final int size;
+        private final Map<Long, Activity> activityById = new HashMap<>();
+
+        // Bucket of the current period in every ring
+        private int head;
+
+        private volatile List<Ranked> top = List.of();
+
+        ActivityWindow(double[] weights, int size) {
+            this.weights = weights;
+            this.size = size;
+        }
+
+        List<Ranked> top() {
+            return top;
+        }
+
+        /**
+         * Counts one event for an ID. Only that score changes, and it only grows,
+         * so the top changes at most by this ID entering it or moving up.
+         */
+        synchronized void record(Long id) {
+            Activity activity = activityById.computeIfAbsent(id, key -> new Activity(weights.length));
+            activity.buckets[head]++;
+            activity.score += weights[0];
+
+            List<Ranked> ranked = top;
+            Ranked entered = new Ranked(id, activity.score);
+            boolean ranking = ranked.stream().anyMatch(entry -> entry.id().equals(id));
+            // Same order as advance, ties included
+            if (!ranking && ranked.size() >= size && MOST_ACTIVE_FIRST.compare(entered, ranked.getLast()) > 0) {
+                return;
+            }
+            List<Ranked> next = new ArrayList<>(ranked.size() + 1);
+            ranked.stream().filter(entry -> !entry.id().equals(id)).forEach(next::add);
+            next.add(entered);
+            next.sort(MOST_ACTIVE_FIRST);
+            top = List.copyOf(next.subList(0, Math.min(size, next.size())));
+        }
+
+        /**
+         * Moves to the next bucket and recomputes every score and the top.
+         *
+         * @return the IDs without activity left in the window
+         */
+        synchronized List<Long> advance() {
+            head = (head + 1) % weights.length;
+            List<Long> expired = new ArrayList<>();
+            PriorityQueue<Ranked> best = new PriorityQueue<>(MOST_ACTIVE_FIRST.reversed());
+
+            Iterator<Map.Entry<Long, Activity>> iterator = activityById.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Activity> entry = iterator.next();
+                Activity activity = entry.getValue();
+                // The oldest bucket is reused for the new period
+                activity.buckets[head] = 0;
+                activity.score = 0;
+                for (int age = 0; age < weights.length; age++) {
+                    activity.score += activity.buckets[Math.floorMod(head - age, weights.length)] * weights[age];
+                }
+                if (activity.score == 0) {
+                    iterator.remove();
+                    expired.add(entry.getKey());
+                    continue;
+                }
+                best.offer(new Ranked(entry.getKey(), activity.score));
+                if (best.size() > size) {
+                    best.poll();
+                }
+            }
+
+            List<Ranked> next = new ArrayList<>(best);
+            next.sort(MOST_ACTIVE_FIRST);
+            top = List.copyOf(next);
+            return expired;
+        }
+    }
+
+    private static final class Activity {
+        private final int[] buckets;
+        private double score;
+
+        Activity(int bucketCount) {
+            this.buckets = new int[bucketCount];
+        }
+    }
+}
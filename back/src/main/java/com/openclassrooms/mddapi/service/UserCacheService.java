@@ -0,0 +1,66 @@
+package com.openclassrooms.mddapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.event.UserUpdatedEvent;
+import com.openclassrooms.mddapi.exception.UserNotFoundException;
+import com.openclassrooms.mddapi.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Service caching user entities for the flows that need more than the JWT claims.
+ * The cache is bounded and entries expire, so that changes made outside the application are picked up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserCacheService {
+
+    private final UserRepository userRepository;
+
+    @Value("${mdd.user-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${mdd.user-cache.ttl:10m}")
+    private Duration ttl;
+
+    private Cache<Long, User> usersById;
+
+    @PostConstruct
+    public void init() {
+        usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Gets a user, loading it on first access.
+     *
+     * @param id the ID of the user
+     * @return the detached {@link User} entity
+     * @throws UserNotFoundException if no user exists with the provided ID
+     */
+    public User getUser(Long id) {
+        return usersById.get(id, key -> userRepository.findById(key)
+                .orElseThrow(() -> UserNotFoundException.byId(key)));
+    }
+
+    /**
+     * Drops the cached user once their profile update is committed.
+     *
+     * @param event the profile update
+     */
+    @TransactionalEventListener
+    public void onUserUpdated(UserUpdatedEvent event) {
+        usersById.invalidate(event.userId());
+    }
+}
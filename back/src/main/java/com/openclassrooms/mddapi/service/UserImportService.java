@@ -0,0 +1,112 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.auth.AuthenticatedUser;
+import com.openclassrooms.mddapi.dto.auth.RegisterRequestDto;
+import com.openclassrooms.mddapi.dto.user.UserImportResponseDto;
+import com.openclassrooms.mddapi.exception.ServerBusyException;
+import com.openclassrooms.mddapi.exception.UserAlreadyExistsException;
+import com.openclassrooms.mddapi.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Service importing users in bulk, for onboarding whole organisations.
+ * Passwords are hashed in parallel on the password hashing pool, then the users
+ * are inserted with JDBC batches in a single transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (email, username, password, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${mdd.user-import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Imports users, skipping those whose email or username is already taken.
+     *
+     * @param requester the authenticated administrator running the import, authorized by the security chain
+     * @param users the users to create
+     * @return the number of imported users and the emails of the skipped ones
+     * @throws UserAlreadyExistsException if a user was registered concurrently with the same email or username
+     * @throws ServerBusyException if the password hashing pool is saturated
+     */
+    public UserImportResponseDto importUsers(AuthenticatedUser requester, List<RegisterRequestDto> users) {
+        // Skip entries clashing with existing users or with an earlier entry of the import.
+        // Compared like the unique keys do: the column collation ignores case and trailing spaces
+        Set<String> takenEmails = normalizedSet(userRepository.findEmailsByEmailIn(
+                users.stream().map(RegisterRequestDto::getEmail).toList()));
+        Set<String> takenUsernames = normalizedSet(userRepository.findUsernamesByUsernameIn(
+                users.stream().map(RegisterRequestDto::getUsername).toList()));
+
+        List<RegisterRequestDto> accepted = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (RegisterRequestDto user : users) {
+            String email = normalize(user.getEmail());
+            String username = normalize(user.getUsername());
+            if (takenEmails.contains(email) || takenUsernames.contains(username)) {
+                skipped.add(user.getEmail());
+                continue;
+            }
+            takenEmails.add(email);
+            takenUsernames.add(username);
+            accepted.add(user);
+        }
+
+        // Hash before opening the transaction: it takes far longer than the inserts
+        List<String> hashes = passwordHashingService.encodeAll(
+                accepted.stream().map(RegisterRequestDto::getPassword).toList());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            rows.add(new Object[]{accepted.get(i).getEmail(), accepted.get(i).getUsername(), hashes.get(i), now, now});
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_USER, rows, batchSize, (statement, row) -> {
+                        for (int i = 0; i < row.length; i++) {
+                            statement.setObject(i + 1, row[i]);
+                        }
+                    }));
+        } catch (DuplicateKeyException e) {
+            throw new UserAlreadyExistsException("A user was registered with the same email or username during the import");
+        }
+
+        log.info("User {} imported {} users, skipped {}", requester.email(), rows.size(), skipped.size());
+        return new UserImportResponseDto(rows.size(), skipped);
+    }
+
+    private static Set<String> normalizedSet(List<String> values) {
+        Set<String> normalized = new HashSet<>();
+        values.forEach(value -> normalized.add(normalize(value)));
+        return normalized;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
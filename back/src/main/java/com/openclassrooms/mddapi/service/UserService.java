@@ -3,15 +3,18 @@ package com.openclassrooms.mddapi.service;
 import com.openclassrooms.mddapi.dto.user.UserResponseDto;
 import com.openclassrooms.mddapi.dto.user.UserUpdateRequestDto;
 import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.event.UserUpdatedEvent;
+import com.openclassrooms.mddapi.exception.ServerBusyException;
 import com.openclassrooms.mddapi.exception.UserAlreadyExistsException;
 import com.openclassrooms.mddapi.exception.UserNotFoundException;
 import com.openclassrooms.mddapi.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Service responsible for user-related operations.
@@ -22,7 +25,9 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * Retrieves a user by their ID.
@@ -36,6 +41,19 @@ public class UserService {
                 .orElseThrow(() -> UserNotFoundException.byId(id));
     }
 
+    /**
+     * Gets the ETag of a user's profile from its last update, without loading the user.
+     *
+     * @param id the id of the user
+     * @return the quoted ETag value
+     * @throws UserNotFoundException if no user exists with the provided ID
+     */
+    public String getUserETag(Long id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> UserNotFoundException.byId(id))
+                .toETag("user-" + id);
+    }
+
     /**
      * Updates a user's profile information.
      * Only updates fields that are provided and different from current values.
@@ -44,39 +62,49 @@ public class UserService {
      * @param existingUser the current user entity
      * @return the updated user entity
      * @throws UserAlreadyExistsException if username or email already exists
+     * @throws ServerBusyException        if the password hashing pool is saturated
      */
-    @Transactional
     public User updateUser(UserUpdateRequestDto updateRequest, User existingUser) {
-        // Check if username is already taken
-        if (!existingUser.getUsername().equals(updateRequest.getUsername())) {
-            if (userRepository.existsByUsername(updateRequest.getUsername())) {
-                throw new UserAlreadyExistsException("User with this username already exists");
+        // Hash before opening the transaction: no connection is held while waiting on the hashing pool
+        String passwordHash = updateRequest.getPassword() != null && !updateRequest.getPassword().trim().isEmpty()
+                ? passwordHashingService.encode(updateRequest.getPassword())
+                : null;
+
+        // Checks and update in a short transaction
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Check if username is already taken
+            if (!existingUser.getUsername().equals(updateRequest.getUsername())) {
+                if (userRepository.existsByUsername(updateRequest.getUsername())) {
+                    throw new UserAlreadyExistsException("User with this username already exists");
+                }
             }
-        }
 
-        // Check if email is already taken by another user
-        if (!existingUser.getEmail().equals(updateRequest.getEmail())) {
-            if ( userRepository.existsByEmail(updateRequest.getEmail())) {
-                throw new UserAlreadyExistsException("User with this email already exists");
+            // Check if email is already taken by another user
+            if (!existingUser.getEmail().equals(updateRequest.getEmail())) {
+                if ( userRepository.existsByEmail(updateRequest.getEmail())) {
+                    throw new UserAlreadyExistsException("User with this email already exists");
+                }
             }
-        }
 
-        // Only update username if provided and not blank
-        if (updateRequest.getUsername() != null && !updateRequest.getUsername().trim().isEmpty()) {
-            existingUser.setUsername(updateRequest.getUsername().trim());
-        }
+            // Only update username if provided and not blank
+            if (updateRequest.getUsername() != null && !updateRequest.getUsername().trim().isEmpty()) {
+                existingUser.setUsername(updateRequest.getUsername().trim());
+            }
 
-        // Only update email if provided and not blank
-        if (updateRequest.getEmail() != null && !updateRequest.getEmail().trim().isEmpty()) {
-            existingUser.setEmail(updateRequest.getEmail().trim());
-        }
+            // Only update email if provided and not blank
+            if (updateRequest.getEmail() != null && !updateRequest.getEmail().trim().isEmpty()) {
+                existingUser.setEmail(updateRequest.getEmail().trim());
+            }
 
-        // Only update password if provided
-        if (updateRequest.getPassword() != null && !updateRequest.getPassword().trim().isEmpty()) {
-            existingUser.setPassword(passwordEncoder.encode(updateRequest.getPassword()));
-        }
+            // Only update password if provided
+            if (passwordHash != null) {
+                existingUser.setPassword(passwordHash);
+            }
 
-        // Save and return
-        return userRepository.save(existingUser);
+            // Save, drop the cached copy and return
+            User updatedUser = userRepository.save(existingUser);
+            eventPublisher.publishEvent(new UserUpdatedEvent(updatedUser.getId(), updatedUser.getUsername()));
+            return updatedUser;
+        });
     }
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ CREATE TABLE users (
     email VARCHAR(100) UNIQUE NOT NULL,
     password VARCHAR(255) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
 
@@ -12,18 +12,37 @@ CREATE TABLE subjects (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(100) UNIQUE NOT NULL,
     description TEXT,
+    subscriber_count BIGINT NOT NULL DEFAULT 0,
+    post_count BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
+-- blocks of IDs for the tables inserted in batches; next_val is the first ID of the next block
+CREATE TABLE id_generators (
+    sequence_name VARCHAR(64) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO id_generators (sequence_name, next_val) VALUES ('posts', 1), ('comments', 1);
+
 CREATE TABLE posts (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     content TEXT NOT NULL,
+    excerpt VARCHAR(280),
     author_id BIGINT NOT NULL,
     subject_id BIGINT NOT NULL,
+    fanned_out BOOLEAN NOT NULL DEFAULT FALSE,
+    comment_count BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+
+    -- keyset pagination of the feed
+    INDEX idx_posts_subject_created (subject_id, created_at, id),
+
+    -- posts of the subscribed subjects that were not fanned out, merged into the feed
+    INDEX idx_posts_subject_fan_out (subject_id, fanned_out, created_at, id),
     
     -- foreigner keys
     CONSTRAINT fk_posts_author 
@@ -33,12 +52,15 @@ CREATE TABLE posts (
 );
 
 CREATE TABLE comments (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     content TEXT NOT NULL,
     author_id BIGINT NOT NULL,
     post_id BIGINT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+
+    -- keyset pagination of the comments of a post
+    INDEX idx_comments_post_created (post_id, created_at, id),
     
     -- foreigner keys
     CONSTRAINT fk_comments_author 
@@ -62,6 +84,42 @@ CREATE TABLE subscriptions (
 );
 
 
+-- home timeline materialized on post creation (fan-out on write)
+CREATE TABLE user_timeline (
+    user_id BIGINT NOT NULL,
+    post_id BIGINT NOT NULL,
+    subject_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, post_id),
+    INDEX idx_timeline_user_created (user_id, created_at, post_id),
+    INDEX idx_timeline_user_subject (user_id, subject_id),
+
+    -- foreigner keys
+    CONSTRAINT fk_timeline_user
+        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_timeline_post
+        FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+-- rotating refresh tokens, stored hashed; one session_id per login
+CREATE TABLE refresh_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    session_id VARCHAR(36) NOT NULL,
+    token_hash CHAR(64) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    used_at TIMESTAMP NULL,
+    revoked_at TIMESTAMP NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_refresh_tokens_hash (token_hash),
+    INDEX idx_refresh_tokens_session (session_id),
+    INDEX idx_refresh_tokens_revoked (revoked_at),
+
+    -- foreigner keys
+    CONSTRAINT fk_refresh_tokens_user
+        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
 INSERT INTO subjects (name, description) VALUES 
 ('JavaScript', 'Langage de programmation pour le web et le développement full-stack'),
 ('Java', 'Langage orienté objet pour applications d\'entreprise'),
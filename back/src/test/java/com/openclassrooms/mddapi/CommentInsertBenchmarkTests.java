@@ -0,0 +1,155 @@
+package com.openclassrooms.mddapi;
+
+import com.openclassrooms.mddapi.entity.Comment;
+import com.openclassrooms.mddapi.entity.Post;
+import com.openclassrooms.mddapi.entity.Subject;
+import com.openclassrooms.mddapi.entity.User;
+import com.openclassrooms.mddapi.repository.CommentRepository;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.SubjectRepository;
+import com.openclassrooms.mddapi.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Inserts per second of comments: IDENTITY keys, one round trip per row to read the generated key,
+ * versus the IDs of Comment taken from the table generator and inserted in JDBC batches.
+ * Runs against the configured database, only when asked for:
+ * {@code mvn test -Dtest=CommentInsertBenchmarkTests -Dbenchmark=true}.
+ * Use a MySQL database with {@code rewriteBatchedStatements=true}, as in production.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CommentInsertBenchmarkTests {
+
+    private static final int COMMENTS = 5_000;
+
+    // Same columns and keys as comments, with the former AUTO_INCREMENT ID
+    private static final String IDENTITY_TABLE = "comments_identity_benchmark";
+    private static final String CREATE_IDENTITY_TABLE = "CREATE TABLE " + IDENTITY_TABLE + " (" +
+            "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, content TEXT NOT NULL, " +
+            "author_id BIGINT NOT NULL, post_id BIGINT NOT NULL, " +
+            "created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL, " +
+            "FOREIGN KEY (author_id) REFERENCES users (id), FOREIGN KEY (post_id) REFERENCES posts (id))";
+    private static final String INSERT_IDENTITY = "INSERT INTO " + IDENTITY_TABLE +
+            " (content, author_id, post_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void insertsPerSecond() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        String suffix = Long.toString(System.nanoTime(), 36);
+        Post post = transactionTemplate.execute(status -> createPost(suffix));
+        jdbcTemplate.execute(CREATE_IDENTITY_TABLE);
+
+        try {
+            // Before: with IDENTITY, every insert is sent on its own to read back its generated key
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> comments(post).forEach(this::insertWithIdentity));
+            double rowByRow = perSecond(start);
+
+            // After: IDs come from memory and the inserts are sent in batches of hibernate.jdbc.batch_size
+            start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> commentRepository.saveAll(comments(post)));
+            double batched = perSecond(start);
+
+            log.info("Comment inserts per second: row by row {}, batched {} (x{})",
+                    Math.round(rowByRow), Math.round(batched), String.format("%.1f", batched / rowByRow));
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + IDENTITY_TABLE, Long.class))
+                    .isEqualTo(COMMENTS);
+            assertThat(commentRepository.findVersionByPostId(post.getId()).count()).isEqualTo(COMMENTS);
+        } finally {
+            jdbcTemplate.execute("DROP TABLE " + IDENTITY_TABLE);
+            jdbcTemplate.update("DELETE FROM comments WHERE post_id = ?", post.getId());
+            jdbcTemplate.update("DELETE FROM posts WHERE id = ?", post.getId());
+            jdbcTemplate.update("DELETE FROM subjects WHERE id = ?", post.getSubject().getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", post.getAuthor().getId());
+        }
+    }
+
+    private Post createPost(String suffix) {
+        User author = new User();
+        author.setEmail("benchmark-" + suffix + "@example.com");
+        author.setUsername("bench-" + suffix);
+        author.setPassword("not-a-hash");
+        userRepository.save(author);
+
+        Subject subject = new Subject();
+        subject.setName("Benchmark " + suffix);
+        subject.setDescription("Insert benchmark");
+        subjectRepository.save(subject);
+
+        Post post = new Post();
+        post.setTitle("Benchmark");
+        post.setContent("Insert benchmark");
+        post.setAuthor(author);
+        post.setSubject(subject);
+        return postRepository.save(post);
+    }
+
+    private void insertWithIdentity(Comment comment) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_IDENTITY, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, comment.getContent());
+            statement.setLong(2, comment.getAuthor().getId());
+            statement.setLong(3, comment.getPost().getId());
+            statement.setTimestamp(4, now);
+            statement.setTimestamp(5, now);
+            return statement;
+        }, keyHolder);
+        comment.setId(keyHolder.getKey().longValue());
+    }
+
+    private List<Comment> comments(Post post) {
+        List<Comment> comments = new ArrayList<>(COMMENTS);
+        for (int i = 0; i < COMMENTS; i++) {
+            Comment comment = new Comment();
+            comment.setContent("Comment " + i);
+            comment.setAuthor(post.getAuthor());
+            comment.setPost(post);
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    private static double perSecond(long start) {
+        return COMMENTS / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,158 @@
+package com.openclassrooms.mddapi.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit perIp = new RateLimitProperties.Limit();
+        perIp.setCapacity(100);
+        RateLimitProperties.Limit perAccount = new RateLimitProperties.Limit();
+        perAccount.setCapacity(2);
+        RateLimitProperties.Route login = new RateLimitProperties.Route();
+        login.setPath("/api/auth/login");
+        login.setPerIp(perIp);
+        login.setPerAccount(perAccount);
+        login.setAccount(RateLimitProperties.AccountKey.EMAIL);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getRoutes().put("login", login);
+
+        filter = new RateLimitFilter(properties, null, new ObjectMapper().findAndRegisterModules(),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void limitsAnAccountWhateverItsBodySize() throws Exception {
+        String padded = "{\"email\":\"Alice@Example.com\",\"password\":\"guess\"" + " ".repeat(3000) + "}";
+
+        assertThat(login("{\"email\":\"alice@example.com\",\"password\":\"guess\"}", "10.0.0.1").getStatus())
+                .isEqualTo(200);
+        assertThat(login(padded, "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(login(padded, "10.0.0.3").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void refusesBodiesTooLargeToBeRead() throws Exception {
+        String oversized = "{\"email\":\"alice@example.com\",\"password\":\"guess\"" + " ".repeat(5000) + "}";
+
+        MockHttpServletResponse declared = login(oversized, "10.0.0.1");
+        assertThat(declared.getStatus()).isEqualTo(413);
+
+        // Chunked: no declared length, the body is still cut off at the limit
+        MockHttpServletRequest chunked = loginRequest(oversized, "10.0.0.1");
+        chunked.setContent(null);
+        InputStream body = new ByteArrayInputStream(oversized.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new StreamingRequest(chunked, body), response, chain);
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void replaysTheBodyToBlockingAndAsynchronousReaders() throws Exception {
+        String json = "{\"email\":\"alice@example.com\",\"password\":\"secret\"}";
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(loginRequest(json, "10.0.0.1"), response, chain);
+
+        ServletInputStream stream = chain.getRequest().getInputStream();
+        List<String> calls = new ArrayList<>();
+        stream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                calls.add("data");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                calls.add("error");
+            }
+        });
+        assertThat(calls).containsExactly("data", "done");
+        assertThat(new String(stream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(json);
+        assertThat(stream.isFinished()).isTrue();
+    }
+
+    private MockHttpServletResponse login(String json, String ip) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(json, ip), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest loginRequest(String json, String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(json.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    /**
+     * Request with a body of unknown length.
+     */
+    private static final class StreamingRequest extends HttpServletRequestWrapper {
+        private final InputStream body;
+
+        StreamingRequest(HttpServletRequest request, InputStream body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return body.read();
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return false;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                }
+            };
+        }
+    }
+}
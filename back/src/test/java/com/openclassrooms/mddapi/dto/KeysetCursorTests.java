@@ -0,0 +1,45 @@
+package com.openclassrooms.mddapi.dto;
+
+import com.openclassrooms.mddapi.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000), 42L);
+
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodesAsAnUrlSafeToken() {
+        String token = new KeysetCursor(LocalDateTime.of(2025, 12, 31, 23, 59, 59), Long.MAX_VALUE).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not base64!", "%%%"})
+    void rejectsTokensThatAreNotBase64(String token) {
+        assertThatThrownBy(() -> KeysetCursor.decode(token)).isInstanceOf(InvalidCursorException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2025-03-14T15:09:26", "|42", "yesterday|42", "2025-03-14T15:09:26|", "2025-03-14T15:09:26|abc",
+            "2025-03-14T15:09:26|1|2"})
+    void rejectsMalformedContent(String raw) {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> KeysetCursor.decode(token)).isInstanceOf(InvalidCursorException.class);
+    }
+}
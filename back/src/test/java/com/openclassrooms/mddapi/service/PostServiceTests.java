@@ -0,0 +1,39 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.entity.Post;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostServiceTests {
+
+    @Test
+    void keepsShortContentWithCollapsedWhitespace() {
+        assertThat(PostService.excerptOf("  Hello\n\n  world\t! ")).isEqualTo("Hello world !");
+    }
+
+    @Test
+    void cutsLongContentOnAWordBoundary() {
+        String excerpt = PostService.excerptOf("word ".repeat(100));
+
+        assertThat(excerpt).hasSizeLessThanOrEqualTo(Post.EXCERPT_LENGTH).endsWith(" word…");
+        assertThat(excerpt.substring(0, excerpt.length() - 1).split(" ")).containsOnly("word");
+    }
+
+    @Test
+    void cutsInsideAWordWithoutReasonableBoundary() {
+        String excerpt = PostService.excerptOf("a".repeat(Post.EXCERPT_LENGTH * 2));
+
+        assertThat(excerpt).hasSize(Post.EXCERPT_LENGTH).isEqualTo("a".repeat(Post.EXCERPT_LENGTH - 1) + "…");
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        String emoji = "😀";
+        String excerpt = PostService.excerptOf(emoji.repeat(Post.EXCERPT_LENGTH));
+
+        assertThat(excerpt).hasSizeLessThanOrEqualTo(Post.EXCERPT_LENGTH)
+                .isEqualTo(emoji.repeat((Post.EXCERPT_LENGTH - 2) / 2) + "…");
+        assertThat(Character.isHighSurrogate(excerpt.charAt(excerpt.length() - 2))).isFalse();
+    }
+}
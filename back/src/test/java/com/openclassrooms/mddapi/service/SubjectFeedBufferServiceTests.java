@@ -0,0 +1,104 @@
+package com.openclassrooms.mddapi.service;
+
+import com.openclassrooms.mddapi.dto.KeysetCursor;
+import com.openclassrooms.mddapi.dto.post.PostResponseDto;
+import com.openclassrooms.mddapi.event.PostCreatedEvent;
+import com.openclassrooms.mddapi.repository.PostRepository;
+import com.openclassrooms.mddapi.repository.SubjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SubjectFeedBufferServiceTests {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final long JAVA = 1L;
+    private static final long SPRING = 2L;
+
+    private SubjectFeedBufferService service;
+
+    @BeforeEach
+    void setUp() {
+        PostRepository postRepository = mock(PostRepository.class);
+        SubjectRepository subjectRepository = mock(SubjectRepository.class);
+        when(subjectRepository.findAllIds()).thenReturn(List.of(JAVA, SPRING));
+        when(postRepository.findRecentBySubjectId(anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        service = new SubjectFeedBufferService(postRepository, subjectRepository);
+        ReflectionTestUtils.setField(service, "bufferSize", 3);
+        service.loadBuffers();
+    }
+
+    @Test
+    void keepsPostsCommittedOutOfOrderNewestFirst() {
+        add(JAVA, 1, 10);
+        add(JAVA, 3, 30);
+        add(JAVA, 2, 20);
+
+        assertThat(ids(service.readPage(new long[]{JAVA}, null, 3))).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void ignoresAPostOlderThanAFullBuffer() {
+        add(JAVA, 2, 20);
+        add(JAVA, 3, 30);
+        add(JAVA, 4, 40);
+        add(JAVA, 1, 10);
+
+        assertThat(ids(service.readPage(new long[]{JAVA}, null, 3))).containsExactly(4L, 3L, 2L);
+    }
+
+    @Test
+    void readPageFallsBackBelowTheFloorOfATruncatedBuffer() {
+        // Java keeps 40, 30, 20: its post at 10 is evicted
+        for (int i = 1; i <= 4; i++) {
+            add(JAVA, i, i * 10);
+        }
+        add(SPRING, 5, 5);
+        long[] subjects = {JAVA, SPRING};
+
+        assertThat(ids(service.readPage(subjects, null, 3))).containsExactly(4L, 3L, 2L);
+        // The fourth post would skip the evicted one
+        assertThat(service.readPage(subjects, null, 4)).isEmpty();
+        assertThat(service.readPage(subjects, cursor(2, 20), 1)).isEmpty();
+        assertThat(ids(service.readPage(new long[]{SPRING}, null, 4))).containsExactly(5L);
+    }
+
+    @Test
+    void readSinceFallsBackWhenPostsAfterTheCursorMayBeEvicted() {
+        for (int i = 1; i <= 4; i++) {
+            add(JAVA, i, i * 10);
+        }
+        add(SPRING, 5, 35);
+        long[] subjects = {JAVA, SPRING};
+
+        assertThat(ids(service.readSince(subjects, cursor(2, 20), 10))).containsExactly(3L, 5L, 4L);
+        assertThat(ids(service.readSince(subjects, cursor(3, 30), 2))).containsExactly(5L, 4L);
+        assertThat(service.readSince(subjects, cursor(1, 10), 10)).isEmpty();
+    }
+
+    private void add(long subjectId, long postId, int minutes) {
+        service.onPostCreated(new PostCreatedEvent(subjectId, new PostResponseDto(postId, "Title " + postId,
+                "Excerpt", "author", 1L, EPOCH.plusMinutes(minutes), 0L)));
+    }
+
+    private static KeysetCursor cursor(long postId, int minutes) {
+        return new KeysetCursor(EPOCH.plusMinutes(minutes), postId);
+    }
+
+    private static List<Long> ids(Optional<List<PostResponseDto>> page) {
+        assertThat(page).isPresent();
+        return page.get().stream().map(PostResponseDto::getId).toList();
+    }
+}
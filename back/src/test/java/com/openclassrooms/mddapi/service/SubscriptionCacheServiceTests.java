@@ -0,0 +1,45 @@
+package com.openclassrooms.mddapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionCacheServiceTests {
+
+    @Test
+    void withInsertsAtItsSortedPositionInACopy() {
+        long[] ids = {2, 4, 6};
+
+        assertThat(SubscriptionCacheService.with(ids, 1)).containsExactly(1, 2, 4, 6);
+        assertThat(SubscriptionCacheService.with(ids, 5)).containsExactly(2, 4, 5, 6);
+        assertThat(SubscriptionCacheService.with(ids, 7)).containsExactly(2, 4, 6, 7);
+        assertThat(SubscriptionCacheService.with(new long[0], 3)).containsExactly(3);
+        assertThat(ids).containsExactly(2, 4, 6);
+    }
+
+    @Test
+    void withReturnsTheSameArrayWhenPresent() {
+        long[] ids = {2, 4, 6};
+
+        assertThat(SubscriptionCacheService.with(ids, 4)).isSameAs(ids);
+    }
+
+    @Test
+    void withoutRemovesFromACopy() {
+        long[] ids = {2, 4, 6};
+
+        assertThat(SubscriptionCacheService.without(ids, 2)).containsExactly(4, 6);
+        assertThat(SubscriptionCacheService.without(ids, 4)).containsExactly(2, 6);
+        assertThat(SubscriptionCacheService.without(ids, 6)).containsExactly(2, 4);
+        assertThat(SubscriptionCacheService.without(new long[]{3}, 3)).isEmpty();
+        assertThat(ids).containsExactly(2, 4, 6);
+    }
+
+    @Test
+    void withoutReturnsTheSameArrayWhenAbsent() {
+        long[] ids = {2, 4, 6};
+
+        assertThat(SubscriptionCacheService.without(ids, 5)).isSameAs(ids);
+        assertThat(SubscriptionCacheService.without(new long[0], 5)).isEmpty();
+    }
+}
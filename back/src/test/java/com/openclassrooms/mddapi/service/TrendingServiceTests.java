@@ -0,0 +1,82 @@
+package com.openclassrooms.mddapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingServiceTests {
+
+    // Three buckets, each older bucket weighing half as much, top 2
+    private TrendingService.ActivityWindow window;
+
+    @BeforeEach
+    void setUp() {
+        window = new TrendingService.ActivityWindow(new double[]{1, 0.5, 0.25}, 2);
+    }
+
+    @Test
+    void recordKeepsTheMostActiveIds() {
+        record(1L, 3);
+        record(2L, 1);
+        record(3L, 2);
+
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(1L, 3), new TrendingService.Ranked(3L, 2));
+
+        // Below the top, then entering it by moving up
+        record(2L, 3);
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(2L, 4), new TrendingService.Ranked(1L, 3));
+    }
+
+    @Test
+    void recordBreaksTiesByHighestId() {
+        record(1L, 1);
+        record(2L, 1);
+        record(3L, 1);
+
+        assertThat(ids(window.top())).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void advanceDecaysOlderActivity() {
+        record(1L, 3);
+        window.advance();
+
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(1L, 1.5));
+
+        // Recent activity outweighs older activity
+        record(2L, 2);
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(2L, 2), new TrendingService.Ranked(1L, 1.5));
+
+        window.advance();
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(2L, 1), new TrendingService.Ranked(1L, 0.75));
+    }
+
+    @Test
+    void advanceKeepsTheTopKAndForgetsExpiredIds() {
+        record(1L, 1);
+        window.advance();
+        record(2L, 2);
+        record(3L, 3);
+        window.advance();
+
+        // 1 has 0.25 left, still counted but out of the top
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(3L, 1.5), new TrendingService.Ranked(2L, 1));
+        assertThat(window.advance()).containsExactly(1L);
+        assertThat(window.top()).containsExactly(new TrendingService.Ranked(3L, 0.75), new TrendingService.Ranked(2L, 0.5));
+        assertThat(window.advance()).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(window.top()).isEmpty();
+    }
+
+    private void record(Long id, int times) {
+        for (int i = 0; i < times; i++) {
+            window.record(id);
+        }
+    }
+
+    private static List<Long> ids(List<TrendingService.Ranked> ranked) {
+        return ranked.stream().map(TrendingService.Ranked::id).toList();
+    }
+}
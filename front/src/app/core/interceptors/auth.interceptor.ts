@@ -0,0 +1,50 @@
+import { HttpErrorResponse, HttpInterceptorFn, HttpRequest } from "@angular/common/http";
+import { inject } from "@angular/core";
+import { catchError, Observable, of, switchMap, throwError } from "rxjs";
+import { SessionService } from "../services/session.service";
+import { AuthService } from "../../features/auth/services/auth.service";
+
+// Requests that open or renew a session: they carry no access token and are never retried
+const SESSION_REQUESTS = /\/auth\/(login|register|refresh)$/;
+
+/**
+ * Adds the access token to the API requests. An access token about to expire is refreshed first,
+ * and a request rejected with 401 is retried once with a refreshed token.
+ */
+export const authInterceptor: HttpInterceptorFn = (request, next) => {
+  if (SESSION_REQUESTS.test(request.url)) {
+    return next(request);
+  }
+
+  const sessionService = inject(SessionService);
+  const authService = inject(AuthService);
+
+  const token$: Observable<string | null> = sessionService.getRefreshToken() && sessionService.isTokenExpiring()
+    ? authService.refresh()
+    : of(sessionService.getToken());
+
+  return token$.pipe(
+    switchMap(token => next(withToken(request, token)).pipe(
+      catchError(error => {
+        if (!(error instanceof HttpErrorResponse) || error.status !== 401 || !token) {
+          return throwError(() => error);
+        }
+        // Refreshed meanwhile by another request or tab: retry with the current token
+        const currentToken = sessionService.getToken();
+        if (currentToken && currentToken !== token) {
+          return next(withToken(request, currentToken));
+        }
+        if (!sessionService.getRefreshToken()) {
+          return throwError(() => error);
+        }
+        return authService.refresh().pipe(
+          switchMap(refreshedToken => next(withToken(request, refreshedToken)))
+        );
+      })
+    ))
+  );
+};
+
+function withToken<T>(request: HttpRequest<T>, token: string | null): HttpRequest<T> {
+  return token ? request.clone({ setHeaders: { Authorization: `Bearer ${token}` } }) : request;
+}
@@ -2,6 +2,9 @@ import { BehaviorSubject, Observable } from "rxjs";
 import { Injectable } from "@angular/core";
 import { User } from "../interfaces/user.interface";
 
+// Refresh the access token this long before it expires, so that requests never carry a stale one
+const EXPIRY_MARGIN_MS = 30_000;
+
 @Injectable({
   providedIn: 'root'
 })
@@ -26,6 +29,8 @@ export class SessionService {
 
   public logOut(): void {
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
+    localStorage.removeItem('tokenExpiresAt');
     this.user = undefined;
     this.isLogged = false;
     this.isLoggedSubject.next(false);
@@ -34,4 +39,23 @@ export class SessionService {
   public isUserLoggedIn(): boolean {
     return this.isLogged;
   }
+
+  public storeTokens(token: string, refreshToken: string, expiresIn: number): void {
+    localStorage.setItem('token', token);
+    localStorage.setItem('refreshToken', refreshToken);
+    localStorage.setItem('tokenExpiresAt', String(Date.now() + expiresIn * 1000));
+  }
+
+  public getToken(): string | null {
+    return localStorage.getItem('token');
+  }
+
+  public getRefreshToken(): string | null {
+    return localStorage.getItem('refreshToken');
+  }
+
+  public isTokenExpiring(): boolean {
+    const expiresAt = Number(localStorage.getItem('tokenExpiresAt'));
+    return expiresAt > 0 && Date.now() >= expiresAt - EXPIRY_MARGIN_MS;
+  }
 }
@@ -1,3 +1,5 @@
 export interface AuthToken {
   token: string;
+  refreshToken: string;
+  expiresIn: number;
 }
@@ -12,6 +12,7 @@ import { Subject, finalize, takeUntil, catchError, tap, of, switchMap } from 'rx
 import { HttpErrorResponse } from '@angular/common/http';
 import { AuthService } from '../../services/auth.service';
 import { RegisterRequest } from '../../interfaces/registerRequest.interface';
+import { AuthToken } from '../../interfaces/authToken.interface';
 import { MatIconModule } from '@angular/material/icon';
 import { AsyncPipe, NgIf } from '@angular/common';
 import { MatFormFieldModule } from '@angular/material/form-field';
@@ -96,15 +97,15 @@ export class RegisterComponent implements OnInit, OnDestroy {
           this.handleRegistrationError(error);
           return of(null);
         }),
-        tap((token) => {
-          if (token) {
+        tap((authToken) => {
+          if (authToken) {
             this.isRegistering = false;
             this.isAutoLoggingIn = true;
           }
         }),
-        switchMap((token: string | null) => {
-          if (!token) return of(null);
-          return this.authService.performAutoLogin(token).pipe(
+        switchMap((authToken: AuthToken | null) => {
+          if (!authToken) return of(null);
+          return this.authService.performAutoLogin(authToken).pipe(
             catchError((loginError: HttpErrorResponse) => {
               this.handleLoginError(loginError);
               return of(null);
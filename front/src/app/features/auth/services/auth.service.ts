@@ -1,6 +1,7 @@
 import { HttpClient } from '@angular/common/http';
 import { Injectable } from '@angular/core';
-import {map, Observable, switchMap, tap} from 'rxjs';
+import { Router } from '@angular/router';
+import {catchError, finalize, map, Observable, of, shareReplay, switchMap, tap, throwError} from 'rxjs';
 import { RegisterRequest } from "../interfaces/registerRequest.interface";
 import { LoginRequest } from "../interfaces/loginRequest.interface";
 import { environment } from "../../../../environments/environment";
@@ -13,34 +14,72 @@ import {SessionService} from "../../../core/services/session.service";
 export class AuthService {
   private pathService = environment.baseUrl + 'auth';
 
+  // Refresh tokens are single-use: concurrent callers share the refresh in flight
+  private refreshInProgress$: Observable<string> | null = null;
+
   constructor(
     private httpClient: HttpClient,
-    private sessionService: SessionService
+    private sessionService: SessionService,
+    private router: Router
   ) { }
 
-  public register(registerRequest: RegisterRequest): Observable<string> {
-    return this.httpClient.post<AuthToken>(`${this.pathService}/register`, registerRequest).pipe(
-      map(response => response.token)
-    );
+  public register(registerRequest: RegisterRequest): Observable<AuthToken> {
+    return this.httpClient.post<AuthToken>(`${this.pathService}/register`, registerRequest);
   }
 
   public login(loginRequest: LoginRequest): Observable<User> {
     return this.httpClient.post<AuthToken>(`${this.pathService}/login`, loginRequest).pipe(
-      map(response => response.token),
-      tap(token => localStorage.setItem('token', token)),
-      switchMap(token => this.getUserProfile()),
+      tap(authToken => this.storeTokens(authToken)),
+      switchMap(() => this.getUserProfile()),
       tap(user => this.sessionService.logIn(user))
     );
   }
 
-  public performAutoLogin(token: string): Observable<User> {
-    localStorage.setItem('token', token);
+  public performAutoLogin(authToken: AuthToken): Observable<User> {
+    this.storeTokens(authToken);
 
     return this.getUserProfile().pipe(
       tap(user => this.sessionService.logIn(user))
     );
   }
 
+  /**
+   * Exchanges the refresh token for a new access token and the next refresh token.
+   * The session ends if the refresh token is rejected.
+   */
+  public refresh(): Observable<string> {
+    if (!this.refreshInProgress$) {
+      const refreshToken = this.sessionService.getRefreshToken();
+      this.refreshInProgress$ = this.httpClient.post<AuthToken>(`${this.pathService}/refresh`, { refreshToken }).pipe(
+        tap(authToken => this.storeTokens(authToken)),
+        map(authToken => authToken.token),
+        catchError(error => {
+          this.sessionService.logOut();
+          this.router.navigate(['/login']).catch(console.error);
+          return throwError(() => error);
+        }),
+        finalize(() => this.refreshInProgress$ = null),
+        shareReplay(1)
+      );
+    }
+    return this.refreshInProgress$;
+  }
+
+  /**
+   * Revokes the session on the server, then forgets it locally even if the server could not be reached.
+   */
+  public logout(): Observable<void> {
+    return this.httpClient.post<void>(`${this.pathService}/logout`, {}).pipe(
+      catchError(() => of(undefined)),
+      map(() => undefined),
+      finalize(() => this.sessionService.logOut())
+    );
+  }
+
+  private storeTokens(authToken: AuthToken): void {
+    this.sessionService.storeTokens(authToken.token, authToken.refreshToken, authToken.expiresIn);
+  }
+
   private getUserProfile(): Observable<User> {
     return this.httpClient.get<User>(`${this.pathService}/me`);
   }
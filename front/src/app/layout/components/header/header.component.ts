@@ -2,6 +2,7 @@ import { Component, OnInit, HostListener } from '@angular/core';
 import { Router, NavigationEnd } from '@angular/router';
 import { Observable, filter } from 'rxjs';
 import { SessionService } from 'src/app/core/services/session.service';
+import { AuthService } from 'src/app/features/auth/services/auth.service';
 import { CommonModule, AsyncPipe } from '@angular/common';
 import { MatSidenavModule } from '@angular/material/sidenav';
 import { MatToolbarModule } from '@angular/material/toolbar';
@@ -38,7 +39,8 @@ export class HeaderComponent implements OnInit {
 
   constructor(
     private readonly router: Router,
-    private readonly sessionService: SessionService
+    private readonly sessionService: SessionService,
+    private readonly authService: AuthService
   ) {
     this.isLoggedIn$ = this.sessionService.$isLogged();
   }
@@ -75,8 +77,7 @@ export class HeaderComponent implements OnInit {
   }
 
   logout(): void {
-    this.sessionService.logOut();
-    this.router.navigate(['/home']);
+    this.authService.logout().subscribe(() => this.router.navigate(['/home']));
     this.closeSidenav();
   }
 }
@@ -4,20 +4,12 @@ import { AppComponent } from './app/app.component';
 import { appConfig } from './app/app.config';
 import {provideHttpClient, withInterceptors} from '@angular/common/http';
 import { provideAnimations } from '@angular/platform-browser/animations';
+import { authInterceptor } from './app/core/interceptors/auth.interceptor';
 bootstrapApplication(AppComponent, {
   ...appConfig,
   providers: [
     ...(appConfig.providers ?? []),
-    provideHttpClient(withInterceptors([
-      (req, next) => {
-        const token = localStorage.getItem('token');
-        if (token) {
-          req = req.clone({ setHeaders: { Authorization: `Bearer ${token}` } });
-        }
-        console.log('Intercepted request', req.url, 'Token:', token);
-        return next(req);
-      }
-    ])),
+    provideHttpClient(withInterceptors([authInterceptor])),
     provideAnimations(),
   ]
 })